@@ -0,0 +1,98 @@
+package com.objectway.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.objectway.parallel.accumulators.CasAccumulator;
+import com.objectway.parallel.accumulators.StripedAccumulator;
+import com.objectway.parallel.accumulators.ThreadLocalAccumulator;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Throughput of the accumulators used as a side-effecting sink of a parallel forEach, with 1..N threads.
+ * The score is in additions per microsecond. The JDK LongAdder and AtomicLong.addAndGet() are included
+ * as references.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class AccumulatorBenchmark {
+
+	private static final int ADDITIONS = 1_000_000;
+
+	@Param({ "cas", "striped", "threadLocal", "longAdder", "atomicLong" })
+	private String accumulator;
+
+	@Param({ "1", "2", "4", "8" })
+	private int threads;
+
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup() {
+		pool = new ForkJoinPool(threads);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDITIONS)
+	public long parallelForEach() {
+		return pool.submit(() -> {
+			switch (accumulator) {
+			case "cas":
+				CasAccumulator cas = new CasAccumulator();
+				forEach(cas);
+				return cas.sum();
+			case "striped":
+				StripedAccumulator striped = new StripedAccumulator();
+				forEach(striped);
+				return striped.sum();
+			case "threadLocal":
+				ThreadLocalAccumulator threadLocal = new ThreadLocalAccumulator();
+				forEach(threadLocal);
+				return threadLocal.sum();
+			case "longAdder":
+				LongAdder adder = new LongAdder();
+				forEach(adder::add);
+				return adder.sum();
+			case "atomicLong":
+				AtomicLong atomic = new AtomicLong();
+				forEach(atomic::addAndGet);
+				return atomic.get();
+			default:
+				throw new IllegalArgumentException("Unknown accumulator: " + accumulator);
+			}
+		}).join();
+	}
+
+	private static void forEach(LongConsumer sink) {
+		LongStream.rangeClosed(1, ADDITIONS).parallel().forEach(sink);
+	}
+
+}
@@ -0,0 +1,118 @@
+package com.objectway.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.objectway.collectors.ToListCollector;
+import com.objectway.model.Dish;
+import com.objectway.streams.exercises.helpers.MenuCreator;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The collectors of the collectors package on a menu of the given size: imperative grouping against
+ * groupingBy(), partitioningBy() and the custom ToListCollector against Collectors.toList(),
+ * both sequential and parallel. Parallel streams run inside a ForkJoinPool with the given parallelism.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class CollectorsBenchmark {
+
+	@Param({ "10000", "1000000" })
+	private int menuSize;
+
+	@Param({ "1", "2", "4", "8" })
+	private int parallelism;
+
+	private ForkJoinPool pool;
+	private List<Dish> menu;
+
+	@Setup
+	public void setup() {
+		pool = new ForkJoinPool(parallelism);
+		menu = MenuCreator.getMenu(menuSize);
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public Map<Dish.Type, List<Dish>> imperativeGrouping() {
+		Map<Dish.Type, List<Dish>> grouping = new HashMap<>();
+		for (Dish dish : menu) {
+			List<Dish> dishes = grouping.get(dish.getType());
+			if (dishes == null) {
+				dishes = new ArrayList<>();
+				grouping.put(dish.getType(), dishes);
+			}
+			dishes.add(dish);
+		}
+		return grouping;
+	}
+
+	@Benchmark
+	public Map<Dish.Type, List<Dish>> groupingBy() {
+		return menu.stream().collect(Collectors.groupingBy(Dish::getType));
+	}
+
+	@Benchmark
+	public Map<Dish.Type, List<Dish>> groupingByParallel() {
+		return pool.submit(() -> menu.parallelStream().collect(Collectors.groupingBy(Dish::getType))).join();
+	}
+
+	@Benchmark
+	public Map<Dish.Type, List<Dish>> groupingByConcurrentParallel() {
+		return pool.submit(() -> menu.parallelStream().collect(Collectors.groupingByConcurrent(Dish::getType))).join();
+	}
+
+	@Benchmark
+	public Map<Boolean, List<Dish>> partitioningBy() {
+		return menu.stream().collect(Collectors.partitioningBy(Dish::isVegetarian));
+	}
+
+	@Benchmark
+	public Map<Boolean, List<Dish>> partitioningByParallel() {
+		return pool.submit(() -> menu.parallelStream().collect(Collectors.partitioningBy(Dish::isVegetarian))).join();
+	}
+
+	@Benchmark
+	public List<Dish> predefinedToList() {
+		return menu.stream().filter(d -> d.getCalories() < 400).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public List<Dish> customToListCollector() {
+		return menu.stream().filter(d -> d.getCalories() < 400).collect(new ToListCollector<>());
+	}
+
+	@Benchmark
+	public List<Dish> customToListCollectorParallel() {
+		return pool.submit(() -> menu.parallelStream().filter(d -> d.getCalories() < 400)
+				.collect(new ToListCollector<>())).join();
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.objectway.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.objectway.parallel.ForkJoinFramework;
+import com.objectway.parallel.SequentialOrParallelSum;
+import com.objectway.parallel.SplitThreshold;
+import com.objectway.parallel.kernels.LongArrayKernels;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The parallel sum strategies of SequentialOrParallelSum and ForkJoinFramework.
+ * Every benchmark runs inside a ForkJoinPool with the given parallelism: parallel streams and
+ * fork/join tasks started from a worker of a pool run in that pool instead of the common one.
+ * 
+ * @see com.objectway.benchmarks.SequentialSumBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class ParallelSumBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	private int size;
+
+	@Param({ "1", "2", "4", "8" })
+	private int parallelism;
+
+	private ForkJoinPool pool;
+	private long[] numbers;
+
+	@Setup
+	public void setup() {
+		pool = new ForkJoinPool(parallelism);
+		numbers = LongStream.rangeClosed(1, size).toArray();
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public long functionalParallelSum() {
+		return pool.submit(() -> SequentialOrParallelSum.functionalParallelSum(size)).join();
+	}
+
+	@Benchmark
+	public long optimizedFunctionalParallelSum() {
+		return pool.submit(() -> SequentialOrParallelSum.optimizedFunctionalParallelSum(size)).join();
+	}
+
+	@Benchmark
+	public long forkJoinFramework() {
+		return pool.invoke(new ForkJoinFramework(numbers));
+	}
+
+	@Benchmark
+	public long forkJoinFrameworkAdaptive() {
+		return pool.invoke(new ForkJoinFramework(numbers, SplitThreshold.forParallelism(numbers.length, parallelism)));
+	}
+
+	@Benchmark
+	public long arrayKernelSum() {
+		return pool.submit(() -> LongArrayKernels.sum(numbers)).join();
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.objectway.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.objectway.parallel.SequentialOrParallelSum;
+import com.objectway.parallel.kernels.LongArrayKernels;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The sequential sum strategies of SequentialOrParallelSum, the baselines for ParallelSumBenchmark.
+ * They don't depend on the parallelism, so they have their own benchmark with the size parameter only.
+ * 
+ * @see com.objectway.benchmarks.ParallelSumBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class SequentialSumBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	private int size;
+
+	private long[] numbers;
+
+	@Setup
+	public void setup() {
+		numbers = LongStream.rangeClosed(1, size).toArray();
+	}
+
+	@Benchmark
+	public long iterativeSequentialSum() {
+		return SequentialOrParallelSum.iterativeSequentialSum(size);
+	}
+
+	@Benchmark
+	public long functionalSequentialSum() {
+		return SequentialOrParallelSum.functionalSequentialSum(size);
+	}
+
+	@Benchmark
+	public long arraySequentialSum() {
+		return LongArrayKernels.sequentialSum(numbers);
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.objectway.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.objectway.async.shopfinder.ShopFinderModelComparison;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The execution models of ShopFinderModelComparison on the given number of shops.
+ * Every Shop.getPrice() call blocks for about a second, so every invocation is timed on its own
+ * (single shot) and few iterations are enough.
+ * 
+ * The parallelism is the size of the ForkJoinPool running the parallel stream and of the custom executor.
+ * findPricesAsync() always uses the common pool: its size is set with
+ * -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=N
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShopFinderBenchmark {
+
+	private static final String PRODUCT = "AMD Ryzen Threadripper 3990WX";
+
+	@Param({ "9", "36" })
+	private int shops;
+
+	@Param({ "9", "36" })
+	private int parallelism;
+
+	private List<Shop> shopList;
+	private ForkJoinPool pool;
+	private ExecutorService executor;
+
+	@Setup
+	public void setup() {
+		shopList = new ArrayList<>();
+		for (int i = 0; i < shops; i++) {
+			shopList.add(new Shop("Shop " + i));
+		}
+		pool = new ForkJoinPool(parallelism);
+		executor = Executors.newFixedThreadPool(parallelism, r -> {
+			Thread t = new Thread(r);
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+		executor.shutdown();
+	}
+
+	@Benchmark
+	public List<String> sequential() {
+		return ShopFinderModelComparison.findPricesSequential(shopList, PRODUCT);
+	}
+
+	@Benchmark
+	public List<String> parallel() {
+		return pool.submit(() -> ShopFinderModelComparison.findPricesParallel(shopList, PRODUCT)).join();
+	}
+
+	@Benchmark
+	public List<String> async() {
+		return ShopFinderModelComparison.findPricesAsync(shopList, PRODUCT);
+	}
+
+	@Benchmark
+	public List<String> asyncWithCustomExecutor() {
+		return ShopFinderModelComparison.findPricesAsyncWithCustomExecutor(shopList, PRODUCT, executor);
+	}
+
+}
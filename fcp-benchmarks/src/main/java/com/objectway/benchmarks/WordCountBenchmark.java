@@ -0,0 +1,82 @@
+package com.objectway.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.objectway.parallel.WordCount;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The WordCount variants on a text made of the given number of words.
+ * The parallel variant runs inside a ForkJoinPool with the given parallelism.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgs = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class WordCountBenchmark {
+
+	private static final String[] WORDS = { "A", "good", "day", "is", "always", "represented", "by", "a", 
+			"functional", "programming", "session!" };
+
+	@Param({ "100000", "1000000" })
+	private int words;
+
+	@Param({ "1", "2", "4", "8" })
+	private int parallelism;
+
+	private ForkJoinPool pool;
+	private String text;
+
+	@Setup
+	public void setup() {
+		pool = new ForkJoinPool(parallelism);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			builder.append(WORDS[i % WORDS.length]).append(i % 7 == 0 ? "  " : " ");
+		}
+		text = builder.toString();
+	}
+
+	@TearDown
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public int iterativeWordCount() {
+		return WordCount.iterativeWordCount(text);
+	}
+
+	@Benchmark
+	public int functionalSequentialWordCount() {
+		return WordCount.functionalSequentialWordCount(text);
+	}
+
+	@Benchmark
+	public int functionalParallelWordCount() {
+		return pool.submit(() -> WordCount.functionalParallelWordCount(text)).join();
+	}
+
+	@Benchmark
+	public int collectorParallelWordCount() {
+		return pool.submit(() -> WordCount.collectorParallelWordCount(text)).join();
+	}
+
+}
@@ -1,16 +1,19 @@
 package com.objectway.async.shopfinder;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.objectway.async.shopfinder.cache.PriceCache;
+import com.objectway.async.shopfinder.customexecutor.SelfTuningExecutor;
 import com.objectway.async.shopfinder.model.Shop;
 
 public class ShopFinderModelComparison {
@@ -22,20 +25,19 @@ public class ShopFinderModelComparison {
 			new Shop("BPM Power"), new Shop("HWOnline"), new Shop("Monclick"), new Shop("Yeppon"),
 			new Shop("NewEgg"));
 	
-	private static final Executor executor = Executors.newFixedThreadPool(Math.min(shopList.size(), 100), new ThreadFactory() {
-		@Override
-		public Thread newThread(Runnable r) {
-			Thread t = new Thread(r);
-			t.setDaemon(true);
-			return t;
-		}
-	});
+	private static final String VIRTUAL_THREADS_MODEL = "com.objectway.async.shopfinder.virtualthreads.ShopFinderVirtualThreads";
+	
+	// Sized on the measured wait / compute ratio of the price requests, not on the number of shops.
+	private static final SelfTuningExecutor executor = new SelfTuningExecutor();
+	
+	// Prices are reused for a minute: a product searched again doesn't wait for the shops.
+	private static final PriceCache priceCache = new PriceCache(1, TimeUnit.MINUTES, 10_000);
 
 	public static void main(String[] args) {
 		
 		// 1. Search for shops sequentially
 		long startSequential = System.currentTimeMillis();
-		List<String> shopsSequential = findPricesSequential("AMD Ryzen Threadripper 3990WX");
+		List<String> shopsSequential = findPricesSequential(shopList, "AMD Ryzen Threadripper 3990WX");
 		long durationSequential = System.currentTimeMillis() - startSequential;
 		
 		printList(shopsSequential);
@@ -43,7 +45,7 @@ public class ShopFinderModelComparison {
 		
 		// 2. Search for shops in parallel.
 		long startParallel = System.currentTimeMillis();
-		List<String> shopsParallel = findPricesParallel("AMD Ryzen Threadripper 3990WX");
+		List<String> shopsParallel = findPricesParallel(shopList, "AMD Ryzen Threadripper 3990WX");
 		long durationParallel = System.currentTimeMillis() - startParallel;
 		
 		printList(shopsParallel);
@@ -51,7 +53,7 @@ public class ShopFinderModelComparison {
 		
 		// 3. Search for shops asynchronously
 		long startAsync = System.currentTimeMillis();
-		List<String> shopsAsync = findPricesAsync("AMD Ryzen Threadripper 3990WX");
+		List<String> shopsAsync = findPricesAsync(shopList, "AMD Ryzen Threadripper 3990WX");
 		long durationAsync = System.currentTimeMillis() - startAsync;
 		
 		printList(shopsAsync);
@@ -59,27 +61,59 @@ public class ShopFinderModelComparison {
 		
 		// 4. Search for shops asynchronously but using a custom Executor 
 		long startAsyncWithExecutor = System.currentTimeMillis();
-		List<String> shopsAsyncWithExecutor = findPricesAsyncWithCustomExecutor("AMD Ryzen Threadripper 3990WX");
+		List<String> shopsAsyncWithExecutor = findPricesAsyncWithCustomExecutor(shopList, "AMD Ryzen Threadripper 3990WX", executor);
 		long durationAsyncWithExecutor = System.currentTimeMillis() - startAsyncWithExecutor;
 				
 		printList(shopsAsyncWithExecutor);
 		logger.info("Elapsed time for asynchronous computation: {} secs.", durationAsyncWithExecutor / 1000f);
+		logger.info("{}", executor);
+		
+		// 5. Search for shops with the non-blocking API: no thread waits for the prices.
+		long startNonBlocking = System.currentTimeMillis();
+		List<String> shopsNonBlocking = findPricesNonBlocking(shopList, "AMD Ryzen Threadripper 3990WX");
+		long durationNonBlocking = System.currentTimeMillis() - startNonBlocking;
+		
+		printList(shopsNonBlocking);
+		logger.info("Elapsed time for non-blocking computation: {} secs.", durationNonBlocking / 1000f);
+		
+		// 6. Search for shops with a virtual thread per shop (only in a build with JDK 21, see the virtual-threads profile).
+		if (isVirtualThreadsSupported()) {
+			long startVirtualThreads = System.currentTimeMillis();
+			List<String> shopsVirtualThreads = findPricesVirtualThreads(shopList, "AMD Ryzen Threadripper 3990WX");
+			long durationVirtualThreads = System.currentTimeMillis() - startVirtualThreads;
+			
+			printList(shopsVirtualThreads);
+			logger.info("Elapsed time for virtual threads computation: {} secs.", durationVirtualThreads / 1000f);
+		} else {
+			logger.info("Virtual threads need a build and a runtime with JDK 21 or later: model skipped.");
+		}
+		
+		// 7. Search for shops through the price cache: the second search finds every price cached.
+		for (int i = 0; i < 2; i++) {
+			long startCached = System.currentTimeMillis();
+			List<String> shopsCached = findPricesCached(shopList, "AMD Ryzen Threadripper 3990WX", priceCache);
+			long durationCached = System.currentTimeMillis() - startCached;
+			
+			printList(shopsCached);
+			logger.info("Elapsed time for cached computation: {} secs.", durationCached / 1000f);
+		}
+		logger.info("Price cache: {}", priceCache.getStatistics());
 	}
 	
-	private static List<String> findPricesSequential(String product) {
-		return shopList.stream()
+	public static List<String> findPricesSequential(List<Shop> shops, String product) {
+		return shops.stream()
 			    .map(shop -> String.format("%s price is %.2f", shop.getShopName(), shop.getPrice(product)))
 			    .collect(Collectors.toList());
 	}
 	
-	private static List<String> findPricesParallel(String product) {
-		return shopList.parallelStream()
+	public static List<String> findPricesParallel(List<Shop> shops, String product) {
+		return shops.parallelStream()
 				.map(shop -> String.format("%s price is %.2f", shop.getShopName(), shop.getPrice(product)))
 				.collect(Collectors.toList());
 	}
 	
-	private static List<String> findPricesAsync(String product) {
-		List<CompletableFuture<String>> cf = shopList.stream()
+	public static List<String> findPricesAsync(List<Shop> shops, String product) {
+		List<CompletableFuture<String>> cf = shops.stream()
 				.map(shop -> CompletableFuture.supplyAsync(
 						() -> shop.getShopName() + " price is " + shop.getPrice(product)))
 				.collect(Collectors.toList());
@@ -93,8 +127,8 @@ public class ShopFinderModelComparison {
 		return cf.stream().map(CompletableFuture::join).collect(Collectors.toList());
 	}
 	
-	private static List<String> findPricesAsyncWithCustomExecutor(String product) {
-		List<CompletableFuture<String>> cf = shopList.stream()
+	public static List<String> findPricesAsyncWithCustomExecutor(List<Shop> shops, String product, Executor executor) {
+		List<CompletableFuture<String>> cf = shops.stream()
 				.map(shop -> CompletableFuture.supplyAsync(
 						() -> shop.getShopName() + " price is " + shop.getPrice(product), executor))
 				.collect(Collectors.toList());
@@ -102,6 +136,55 @@ public class ShopFinderModelComparison {
 		return cf.stream().map(CompletableFuture::join).collect(Collectors.toList());
 	}
 
+	public static List<String> findPricesNonBlocking(List<Shop> shops, String product) {
+		List<CompletableFuture<String>> cf = shops.stream()
+				.map(shop -> shop.getPriceAsync(product)
+						.thenApply(price -> shop.getShopName() + " price is " + price))
+				.collect(Collectors.toList());
+
+		return cf.stream().map(CompletableFuture::join).collect(Collectors.toList());
+	}
+
+	public static List<String> findPricesCached(List<Shop> shops, String product, PriceCache cache) {
+		List<CompletableFuture<String>> cf = shops.stream()
+				.map(shop -> cache.getPrice(shop, product)
+						.thenApply(price -> shop.getShopName() + " price is " + price))
+				.collect(Collectors.toList());
+
+		return cf.stream().map(CompletableFuture::join).collect(Collectors.toList());
+	}
+
+	/**
+	 * Runs every getPrice() on its own virtual thread. The model is compiled only with JDK 21 or later
+	 * (in src/main/java21), so it's looked up by reflection.
+	 * @throws UnsupportedOperationException if the model is not available.
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<String> findPricesVirtualThreads(List<Shop> shops, String product) {
+		try {
+			Method model = Class.forName(VIRTUAL_THREADS_MODEL).getMethod("findPricesVirtualThreads", List.class, String.class);
+			return (List<String>) model.invoke(null, shops, product);
+		} catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException e) {
+			throw new UnsupportedOperationException("Virtual threads model not available", e);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof LinkageError) { // Compiled with JDK 21, but running on an older one.
+				throw new UnsupportedOperationException("Virtual threads model not available", cause);
+			}
+			throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+		}
+	}
+	
+	public static boolean isVirtualThreadsSupported() {
+		try {
+			Class.forName(VIRTUAL_THREADS_MODEL);
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			return false;
+		}
+	}
+
 	private static void printList(List<String> list) {
 		for (String s : list) {
 			logger.info(s);
@@ -0,0 +1,162 @@
+package com.objectway.async.shopfinder.batching;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.objectway.async.shopfinder.model.Delayer;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Groups the price requests to the same shop in batches sent with Shop.getPricesAsync(): a basket of
+ * 50 products costs a single round trip per shop instead of 50.
+ * The first request to a shop opens a batch; the batch is sent when it holds maxBatchSize products or
+ * windowMillis after it was opened, whichever comes first. The window bounds the latency added to the
+ * first request of a batch, the size bounds the requests of a shop. The same product requested twice
+ * in a batch is requested once, and both callers get its price, each in a future of its own: a caller
+ * cancelling or completing its future doesn't change the price of the other one.
+ *
+ * Thread-safe: getPrice() can be called by many threads at once. The window timers run on the Delayer.
+ */
+public class BatchingPriceClient {
+
+	private final int maxBatchSize;
+	private final long windowMillis;
+	private final Map<String, Batch> openBatches = new ConcurrentHashMap<>();
+
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder products = new LongAdder();
+
+	public BatchingPriceClient(int maxBatchSize, long windowMillis) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+		}
+		if (windowMillis < 0) {
+			throw new IllegalArgumentException("windowMillis must not be negative: " + windowMillis);
+		}
+		this.maxBatchSize = maxBatchSize;
+		this.windowMillis = windowMillis;
+	}
+
+	/**
+	 * The price of the product, requested to the shop with the next batch.
+	 */
+	public CompletableFuture<Double> getPrice(Shop shop, String product) {
+		while (true) {
+			Batch batch = openBatches.computeIfAbsent(shop.getShopName(), name -> new Batch(shop));
+			CompletableFuture<Double> price = batch.add(product);
+			if (price != null) {
+				return price;
+			}
+			// The batch has just been sent: retry with a new one.
+		}
+	}
+
+	/**
+	 * The batches sent to the shops.
+	 */
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	/**
+	 * The products requested to the shops, counted once per batch.
+	 */
+	public long getProducts() {
+		return products.sum();
+	}
+
+	public double getAverageBatchSize() {
+		long sent = batches.sum();
+		return sent == 0 ? 0 : (double) products.sum() / sent;
+	}
+
+	private final class Batch {
+
+		private final Shop shop;
+		// Guarded by this.
+		private final Map<String, CompletableFuture<Double>> prices = new LinkedHashMap<>();
+		private boolean sent;
+		private CompletableFuture<Void> window;
+
+		private Batch(Shop shop) {
+			this.shop = shop;
+		}
+
+		/**
+		 * Adds the product to the batch, null if the batch has already been sent.
+		 */
+		private CompletableFuture<Double> add(String product) {
+			CompletableFuture<Double> price;
+			boolean full;
+			synchronized (this) {
+				if (sent) {
+					return null;
+				}
+				price = prices.computeIfAbsent(product, p -> new CompletableFuture<>());
+				full = prices.size() >= maxBatchSize;
+				if (full) {
+					// Closed before releasing the lock: no other product can join a full batch.
+					close();
+				} else if (window == null) {
+					window = Delayer.delay(windowMillis, TimeUnit.MILLISECONDS);
+					window.thenRun(this::sendOnWindow);
+				}
+			}
+			if (full) {
+				send();
+			}
+			return price.thenApply(Function.identity());
+		}
+
+		private void sendOnWindow() {
+			synchronized (this) {
+				if (sent) {
+					return;
+				}
+				close();
+			}
+			send();
+		}
+
+		/**
+		 * Marks the batch as sent and removes it from the open batches. Called holding the lock.
+		 */
+		private void close() {
+			sent = true;
+			openBatches.remove(shop.getShopName(), this);
+			if (window != null) {
+				window.cancel(false);
+			}
+		}
+
+		/**
+		 * Sends the closed batch: only the request to the shop runs without the lock.
+		 */
+		private void send() {
+			Map<String, CompletableFuture<Double>> batch = prices;
+			batches.increment();
+			products.add(batch.size());
+
+			shop.getPricesAsync(batch.keySet()).whenComplete((answer, e) -> {
+				for (Map.Entry<String, CompletableFuture<Double>> price : batch.entrySet()) {
+					Double value = e == null ? answer.get(price.getKey()) : null;
+					if (value != null) {
+						price.getValue().complete(value);
+					} else {
+						price.getValue().completeExceptionally(e != null ? e
+								: new IllegalStateException(shop.getShopName() + " didn't quote " + price.getKey()));
+					}
+				}
+			});
+		}
+
+	}
+
+}
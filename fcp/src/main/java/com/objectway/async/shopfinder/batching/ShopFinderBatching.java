@@ -0,0 +1,68 @@
+package com.objectway.async.shopfinder.batching;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.ShopFinderModelComparison;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Prices a basket of 50 products in 9 shops answering in 200 ms. Quoting one product at a time,
+ * the basket costs 50 round trips to every shop, 10 secs; with the BatchingPriceClient the requests
+ * of all the products are sent together, one round trip per shop.
+ * 
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.batching.ShopFinderBatching [products]
+ */
+public class ShopFinderBatching {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderBatching.class.getName());
+	
+	public static void main(String[] args) {
+		int basketSize = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		List<Shop> shopList = IntStream.range(0, 9)
+				.mapToObj(i -> new Shop("Shop " + i, 200))
+				.collect(Collectors.toList());
+		List<String> basket = IntStream.range(0, basketSize)
+				.mapToObj(i -> "Product " + i)
+				.collect(Collectors.toList());
+		
+		long startProductByProduct = System.currentTimeMillis();
+		basket.forEach(product -> ShopFinderModelComparison.findPricesNonBlocking(shopList, product));
+		logger.info("Product by product: {} round trips, {} secs.", basketSize * shopList.size(),
+				(System.currentTimeMillis() - startProductByProduct) / 1000f);
+		
+		BatchingPriceClient client = new BatchingPriceClient(100, 10);
+		long startBatched = System.currentTimeMillis();
+		List<String> basketPrices = findBasketPrices(shopList, basket, client);
+		logger.info("Batched: {} round trips, {} products per batch, {} secs.", client.getBatches(),
+				client.getAverageBatchSize(), (System.currentTimeMillis() - startBatched) / 1000f);
+		basketPrices.forEach(logger::info);
+	}
+	
+	/**
+	 * The price of the whole basket in every shop.
+	 */
+	public static List<String> findBasketPrices(List<Shop> shops, Collection<String> basket, BatchingPriceClient client) {
+		List<CompletableFuture<String>> cf = shops.stream()
+				.map(shop -> {
+					List<CompletableFuture<Double>> prices = basket.stream()
+							.map(product -> client.getPrice(shop, product))
+							.collect(Collectors.toList());
+					return CompletableFuture.allOf(prices.toArray(new CompletableFuture<?>[0]))
+							.thenApply(v -> String.format("%s basket price is %.2f", shop.getShopName(),
+									prices.stream().mapToDouble(CompletableFuture::join).sum()));
+				})
+				.collect(Collectors.toList());
+		
+		return cf.stream().map(CompletableFuture::join).collect(Collectors.toList());
+	}
+
+}
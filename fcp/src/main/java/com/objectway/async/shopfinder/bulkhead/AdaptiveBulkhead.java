@@ -0,0 +1,226 @@
+package com.objectway.async.shopfinder.bulkhead;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Limits the calls running at the same time on a shared executor, adapting the limit like TCP adapts
+ * its congestion window (additive increase, multiplicative decrease). The health of the service is the
+ * gradient of its latency: the average of the last calls (about 1 / SHORT_WEIGHT of them) against the
+ * average of many more (about 1 / LONG_WEIGHT). A single slow call of a service with a wide latency
+ * spread doesn't move the short average much, while a service slowing down under load moves it long
+ * before the long one catches up:
+ *   1) while the short average isn't over the long one, a successful call raises the limit by 1 / limit,
+ *      about 1 more call per round of calls, if the limit is in use (at least half of it running);
+ *   2) while it's over, but within TOLERANCE times the long one, the limit holds: more concurrent calls
+ *      would only make them slower;
+ *   3) when it's over TOLERANCE times the long one, or a call fails, the limit is halved, at most once
+ *      per short average latency (once per round), down to MIN_LIMIT; before the first successful call
+ *      every failure halves it.
+ * Both averages move with the latency, so a service that is slow but steady gets its throughput back.
+ * If the executor rejects a call (it's shut down), the call and the queued ones fail with its exception.
+ * The latency of a call is measured from its start on the executor, so the time spent queued here
+ * doesn't count: it's the health of the called service, not of the caller.
+ *
+ * Calls over the limit wait in a queue of maxQueue calls, and start in order as running calls end;
+ * beyond that they are shed, the future fails immediately with a RejectedExecutionException.
+ */
+public class AdaptiveBulkhead {
+
+	public static final int MIN_LIMIT = 1;
+
+	// Weights of a new latency in the short and in the long term average: about the last 10 and 500 calls.
+	public static final double SHORT_WEIGHT = 0.1;
+	public static final double LONG_WEIGHT = 0.002;
+
+	// A short term average over TOLERANCE times the long term one is an overloaded service.
+	public static final double TOLERANCE = 1.5;
+
+	public static final double DECREASE_FACTOR = 0.5;
+
+	private final Executor executor;
+	private final int maxLimit;
+	private final int maxQueue;
+
+	// Guarded by this.
+	private final Deque<Call<?>> queue = new ArrayDeque<>();
+	private double limit;
+	private int inFlight;
+	private double shortLatencyNanos;
+	private double longLatencyNanos;
+	private long lastDecrease;
+	private long completed;
+	private long failed;
+	private long shed;
+
+	public AdaptiveBulkhead(Executor executor, int initialLimit, int maxLimit, int maxQueue) {
+		if (initialLimit < MIN_LIMIT || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("initialLimit must be in [" + MIN_LIMIT + ", " + maxLimit + "]: " + initialLimit);
+		}
+		if (maxQueue < 0) {
+			throw new IllegalArgumentException("maxQueue must not be negative: " + maxQueue);
+		}
+		this.executor = executor;
+		this.limit = initialLimit;
+		this.maxLimit = maxLimit;
+		this.maxQueue = maxQueue;
+		this.lastDecrease = System.nanoTime();
+	}
+
+	/**
+	 * Runs the call on the executor now, or when the limit allows it, or sheds it.
+	 */
+	public <T> CompletableFuture<T> submit(Supplier<T> call) {
+		Call<T> task = new Call<>(call);
+		boolean start = false;
+		synchronized (this) {
+			if (inFlight < (int) limit) {
+				inFlight++;
+				start = true;
+			} else if (queue.size() < maxQueue) {
+				queue.add(task);
+			} else {
+				shed++;
+				task.result.completeExceptionally(new RejectedExecutionException(
+						"Bulkhead full: " + inFlight + " running, " + queue.size() + " queued"));
+			}
+		}
+		if (start) {
+			execute(task);
+		}
+		return task.result;
+	}
+
+	private void release(long latencyNanos, boolean success) {
+		List<Call<?>> next = new ArrayList<>();
+		synchronized (this) {
+			inFlight--;
+			if (success) {
+				completed++;
+				// Plain averages of the first calls, so the first latency doesn't weigh for 1 / LONG_WEIGHT calls.
+				shortLatencyNanos += Math.max(SHORT_WEIGHT, 1.0 / completed) * (latencyNanos - shortLatencyNanos);
+				longLatencyNanos += Math.max(LONG_WEIGHT, 1.0 / completed) * (latencyNanos - longLatencyNanos);
+			} else {
+				failed++;
+			}
+			long now = System.nanoTime();
+			if (!success || shortLatencyNanos > TOLERANCE * longLatencyNanos) {
+				// Without a successful call there's no round yet: every failure halves the limit.
+				if (completed == 0 || now - lastDecrease > shortLatencyNanos) {
+					limit = Math.max(MIN_LIMIT, limit * DECREASE_FACTOR);
+					lastDecrease = now;
+				}
+			} else if (shortLatencyNanos <= longLatencyNanos && inFlight + 1 >= limit / 2) {
+				// Only a limit in use is raised: an idle one would grow way beyond what the service can take.
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			}
+			while (inFlight < (int) limit && !queue.isEmpty()) {
+				inFlight++;
+				next.add(queue.poll());
+			}
+		}
+		next.forEach(this::execute);
+	}
+
+	private void execute(Call<?> task) {
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// The executor is shut down: neither this call nor the queued ones will ever run.
+			List<Call<?>> rejected = new ArrayList<>();
+			rejected.add(task);
+			synchronized (this) {
+				inFlight--;
+				rejected.addAll(queue);
+				queue.clear();
+			}
+			rejected.forEach(call -> call.result.completeExceptionally(e));
+		}
+	}
+
+	/**
+	 * The calls allowed to run at the same time.
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized int getQueued() {
+		return queue.size();
+	}
+
+	public synchronized long getCompleted() {
+		return completed;
+	}
+
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * The calls rejected because the queue was full.
+	 */
+	public synchronized long getShed() {
+		return shed;
+	}
+
+	/**
+	 * The short term average latency, in milliseconds (0 before the first successful call).
+	 */
+	public synchronized long getShortLatencyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis((long) shortLatencyNanos);
+	}
+
+	/**
+	 * The long term average latency, the baseline of a healthy call, in milliseconds (0 before the first
+	 * successful call).
+	 */
+	public synchronized long getLongLatencyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis((long) longLatencyNanos);
+	}
+
+	private final class Call<T> implements Runnable {
+
+		private final Supplier<T> call;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+
+		private Call(Supplier<T> call) {
+			this.call = call;
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			boolean success = false;
+			try {
+				result.complete(call.get());
+				success = true;
+			} catch (Throwable e) {
+				result.completeExceptionally(e);
+			} finally {
+				release(System.nanoTime() - start, success);
+			}
+		}
+
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("limit %d, %d running, %d queued, %d completed, %d failed, %d shed, latency %d/%d ms",
+				(int) limit, inFlight, queue.size(), completed, failed, shed, getShortLatencyMillis(), getLongLatencyMillis());
+	}
+
+}
@@ -0,0 +1,59 @@
+package com.objectway.async.shopfinder.bulkhead;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * An AdaptiveBulkhead for every shop in front of a shared executor running the blocking Shop.getPrice().
+ * Without bulkheads a degraded shop, answering slower and slower, holds more and more threads of the
+ * pool, until the requests to the healthy shops wait for a free thread too. Here the limit of the
+ * degraded shop shrinks with its latency, so it holds a few threads while its excess requests wait
+ * in its own queue or are shed, and the healthy shops keep their throughput.
+ */
+public class ShopBulkheads {
+
+	private final Executor executor;
+	private final int initialLimit;
+	private final int maxLimit;
+	private final int maxQueue;
+	private final Map<String, AdaptiveBulkhead> bulkheads = new ConcurrentHashMap<>();
+
+	public ShopBulkheads(Executor executor, int initialLimit, int maxLimit, int maxQueue) {
+		// Fails fast on invalid limits.
+		new AdaptiveBulkhead(executor, initialLimit, maxLimit, maxQueue);
+		this.executor = executor;
+		this.initialLimit = initialLimit;
+		this.maxLimit = maxLimit;
+		this.maxQueue = maxQueue;
+	}
+
+	/**
+	 * The price of the product, requested through the bulkhead of the shop.
+	 * The future fails with a RejectedExecutionException if the request is shed.
+	 */
+	public CompletableFuture<Double> getPrice(Shop shop, String product) {
+		return getBulkhead(shop).submit(() -> shop.getPrice(product));
+	}
+
+	public AdaptiveBulkhead getBulkhead(Shop shop) {
+		return bulkheads.computeIfAbsent(shop.getShopName(),
+				name -> new AdaptiveBulkhead(executor, initialLimit, maxLimit, maxQueue));
+	}
+
+	/**
+	 * The current limit of every shop queried so far, by shop name.
+	 */
+	public Map<String, Integer> getLimits() {
+		Map<String, Integer> limits = new TreeMap<>();
+		bulkheads.forEach((name, bulkhead) -> limits.put(name, bulkhead.getLimit()));
+		return limits;
+	}
+
+}
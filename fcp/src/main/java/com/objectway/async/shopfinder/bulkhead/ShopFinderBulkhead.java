@@ -0,0 +1,154 @@
+package com.objectway.async.shopfinder.bulkhead;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.model.LatencyWindow;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * 10 healthy shops answering in 100 ms, a healthy one answering anywhere between 100 and 300 ms and a
+ * degraded one, whose latency grows by 200 ms for every request it's already serving, share a pool of
+ * 20 threads. Every 100 ms every shop gets a request, for 10 secs: the healthy shops need about 12 threads.
+ * Without bulkheads the degraded shop takes the whole pool and the requests to the healthy shops queue
+ * behind it; with the bulkheads its limit drops to a couple of requests, the healthy shops keep answering
+ * in about 100 ms, and the variable one, slow but steady, isn't throttled.
+ * 
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.bulkhead.ShopFinderBulkhead [seconds]
+ */
+public class ShopFinderBulkhead {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderBulkhead.class.getName());
+	
+	private static final String PRODUCT = "AMD Ryzen Threadripper 3990WX";
+	
+	private static final long INTERVAL_MILLIS = 100;
+	
+	// How long the requests still pending at the end of the load are waited for.
+	private static final long DRAIN_SECONDS = 120;
+	
+	public static void main(String[] args) throws InterruptedException {
+		int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		
+		ExecutorService sharedPool = Executors.newFixedThreadPool(20);
+		run("Shared pool", seconds, (shop, product) -> CompletableFuture.supplyAsync(() -> shop.getPrice(product), sharedPool),
+				() -> { });
+		sharedPool.shutdown();
+		
+		ExecutorService bulkheadPool = Executors.newFixedThreadPool(20);
+		ShopBulkheads bulkheads = new ShopBulkheads(bulkheadPool, 4, 20, 10);
+		// Logged before the pending requests drain: without new requests the degraded shop recovers.
+		run("Bulkheads", seconds, bulkheads::getPrice,
+				() -> logger.info("Bulkheads: limits at the end of the load {}", bulkheads.getLimits()));
+		bulkheadPool.shutdown();
+	}
+	
+	private static void run(String model, int seconds, BiFunction<Shop, String, CompletableFuture<Double>> finder,
+			Runnable onLoadEnd) throws InterruptedException {
+		List<Shop> healthy = IntStream.range(0, 10)
+				.mapToObj(i -> new Shop("Shop " + i, 100))
+				.collect(Collectors.toList());
+		Shop variable = new VariableShop("Variable shop");
+		Shop degraded = new DegradedShop("Degraded shop");
+		LatencyWindow healthyLatencies = new LatencyWindow(100_000);
+		LatencyWindow variableLatencies = new LatencyWindow(100_000);
+		LongAdder degradedAnswers = new LongAdder();
+		LongAdder degradedFailures = new LongAdder();
+		
+		List<CompletableFuture<?>> requests = new ArrayList<>();
+		long end = System.currentTimeMillis() + seconds * 1000L;
+		while (System.currentTimeMillis() < end) {
+			for (Shop shop : healthy) {
+				long start = System.nanoTime();
+				requests.add(finder.apply(shop, PRODUCT)
+						.thenRun(() -> healthyLatencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))));
+			}
+			long start = System.nanoTime();
+			requests.add(finder.apply(variable, PRODUCT)
+					.thenRun(() -> variableLatencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))));
+			requests.add(finder.apply(degraded, PRODUCT)
+					.whenComplete((price, e) -> (e == null ? degradedAnswers : degradedFailures).increment()));
+			Thread.sleep(INTERVAL_MILLIS);
+		}
+		
+		onLoadEnd.run();
+		
+		// The slowest requests are the last ones: they must be in the percentiles too.
+		try {
+			CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).get(DRAIN_SECONDS, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			// Shed requests, already counted.
+		} catch (TimeoutException e) {
+			logger.warn("{}: {} requests still pending after {} secs.", model,
+					requests.stream().filter(request -> !request.isDone()).count(), DRAIN_SECONDS);
+		}
+		
+		logger.info("{}: healthy shops answered {} requests, p50 {} ms, p99 {} ms, max {} ms.", model, healthyLatencies.size(),
+				healthyLatencies.percentile(50), healthyLatencies.percentile(99), healthyLatencies.percentile(100));
+		logger.info("{}: variable shop answered {} requests, p50 {} ms, p99 {} ms.", model, variableLatencies.size(),
+				variableLatencies.percentile(50), variableLatencies.percentile(99));
+		logger.info("{}: degraded shop answered {} requests, {} shed.", model, degradedAnswers.sum(), degradedFailures.sum());
+	}
+	
+	/**
+	 * A healthy shop whose latency is spread between 100 and 300 ms.
+	 */
+	private static class VariableShop extends Shop {
+		
+		private VariableShop(String shopName) {
+			super(shopName, 200);
+		}
+		
+		@Override
+		protected long nextDelayMillis() {
+			return ThreadLocalRandom.current().nextLong(100, 301);
+		}
+		
+	}
+	
+	/**
+	 * A shop answering in 100 ms plus 200 ms for every request it's serving.
+	 */
+	private static class DegradedShop extends Shop {
+		
+		private final AtomicInteger serving = new AtomicInteger();
+		
+		private DegradedShop(String shopName) {
+			super(shopName, 100);
+		}
+		
+		@Override
+		public double getPrice(String product) {
+			serving.incrementAndGet();
+			try {
+				return super.getPrice(product);
+			} finally {
+				serving.decrementAndGet();
+			}
+		}
+		
+		@Override
+		protected long nextDelayMillis() {
+			return getDelayMillis() + 200L * (serving.get() - 1);
+		}
+		
+	}
+
+}
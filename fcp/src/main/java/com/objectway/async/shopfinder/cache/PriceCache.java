@@ -0,0 +1,263 @@
+package com.objectway.async.shopfinder.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * A cache of the prices, keyed by shop and product, in front of Shop.getPriceAsync(): a popular product
+ * is quoted by a shop once per time-to-live, not once per search.
+ *   1) Time to live: a price is reused for ttl after its shop answered, then it's requested again.
+ *   2) Size bound: beyond maxSize entries the least recently used one is evicted.
+ *   3) Single flight: the entry is the future of the price, stored before the request is sent, so
+ *      concurrent lookups of the same key share one request to the shop (they count as hits).
+ *      Every lookup gets its own dependent future: cancelling or completing it leaves the entry alone.
+ * A failed request is not cached: its waiters see the failure, the next lookup asks the shop again.
+ *
+ * The entries are kept in a LinkedHashMap in access order guarded by a lock: the lock is held only
+ * to look up or insert a future, never while a shop is answering.
+ */
+public class PriceCache {
+
+	private final long ttlNanos;
+	private final int maxSize;
+	private final BiFunction<Shop, String, CompletableFuture<Double>> loader;
+	private final Map<Key, CacheEntry> entries;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadFailures = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loadNanos = new LongAdder();
+
+	/**
+	 * Loads the prices with the non-blocking Shop.getPriceAsync().
+	 */
+	public PriceCache(long ttl, TimeUnit unit, int maxSize) {
+		this(ttl, unit, maxSize, Shop::getPriceAsync);
+	}
+
+	public PriceCache(long ttl, TimeUnit unit, int maxSize, BiFunction<Shop, String, CompletableFuture<Double>> loader) {
+		if (ttl <= 0) {
+			throw new IllegalArgumentException("ttl must be positive: " + ttl);
+		}
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+		}
+		this.ttlNanos = unit.toNanos(ttl);
+		this.maxSize = maxSize;
+		this.loader = loader;
+		this.entries = new LinkedHashMap<Key, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+				if (size() > PriceCache.this.maxSize) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * The price of the product in the shop: cached, being requested by another lookup, or requested now.
+	 */
+	public CompletableFuture<Double> getPrice(Shop shop, String product) {
+		Key key = new Key(shop.getShopName(), product);
+		long now = System.nanoTime();
+		CacheEntry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && !entry.isExpired(now)) {
+				hits.increment();
+				return entry.price.thenApply(Function.identity());
+			}
+			entry = new CacheEntry();
+			entries.put(key, entry);
+		}
+		misses.increment();
+		CacheEntry loading = entry;
+		// A failed load is not cached.
+		loading.price.whenComplete((value, e) -> {
+			if (e != null) {
+				synchronized (entries) {
+					entries.remove(key, loading);
+				}
+			}
+		});
+		load(shop, product, loading);
+		return loading.price.thenApply(Function.identity());
+	}
+
+	private void load(Shop shop, String product, CacheEntry entry) {
+		long start = System.nanoTime();
+		CompletableFuture<Double> price;
+		try {
+			price = loader.apply(shop, product);
+		} catch (RuntimeException e) {
+			price = new CompletableFuture<>();
+			price.completeExceptionally(e);
+		}
+		price.whenComplete((value, e) -> {
+			long end = System.nanoTime();
+			loads.increment();
+			loadNanos.add(end - start);
+			if (e == null) {
+				entry.expiresAt = end + ttlNanos;
+				entry.price.complete(value);
+			} else {
+				loadFailures.increment();
+				entry.price.completeExceptionally(e);
+			}
+		});
+	}
+
+	/**
+	 * Removes the price of the product in the shop, e.g. when the shop announces a price change.
+	 */
+	public void invalidate(Shop shop, String product) {
+		synchronized (entries) {
+			entries.remove(new Key(shop.getShopName(), product));
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * The number of entries, expired ones and pending requests included.
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public Statistics getStatistics() {
+		return new Statistics(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), evictions.sum(), loadNanos.sum());
+	}
+
+	private static final class Key {
+
+		private final String shopName;
+		private final String product;
+
+		private Key(String shopName, String product) {
+			this.shopName = shopName;
+			this.product = product;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return shopName.equals(other.shopName) && product.equals(other.product);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(shopName, product);
+		}
+
+	}
+
+	private static final class CacheEntry {
+
+		private final CompletableFuture<Double> price = new CompletableFuture<>();
+		// Set when the shop answers: a pending request never expires.
+		private volatile long expiresAt;
+
+		private boolean isExpired(long now) {
+			return price.isDone() && now - expiresAt >= 0;
+		}
+
+	}
+
+	/**
+	 * A snapshot of the counters of the cache.
+	 */
+	public static final class Statistics {
+
+		private final long hits;
+		private final long misses;
+		private final long loads;
+		private final long loadFailures;
+		private final long evictions;
+		private final long loadNanos;
+
+		private Statistics(long hits, long misses, long loads, long loadFailures, long evictions, long loadNanos) {
+			this.hits = hits;
+			this.misses = misses;
+			this.loads = loads;
+			this.loadFailures = loadFailures;
+			this.evictions = evictions;
+			this.loadNanos = loadNanos;
+		}
+
+		/**
+		 * Lookups answered by a cached price or by a request already sent to the shop.
+		 */
+		public long getHits() {
+			return hits;
+		}
+
+		/**
+		 * Lookups that sent a request to the shop.
+		 */
+		public long getMisses() {
+			return misses;
+		}
+
+		/**
+		 * Requests answered by the shops, failed ones included.
+		 */
+		public long getLoads() {
+			return loads;
+		}
+
+		public long getLoadFailures() {
+			return loadFailures;
+		}
+
+		public long getEvictions() {
+			return evictions;
+		}
+
+		public double getHitRate() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+
+		/**
+		 * The average time the shops took to answer, in milliseconds.
+		 */
+		public double getAverageLoadMillis() {
+			return loads == 0 ? 0 : loadNanos / 1e6 / loads;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d hits, %d misses (hit rate %.1f%%), %d failed loads, %d evictions, average load %.1f ms",
+					hits, misses, getHitRate() * 100, loadFailures, evictions, getAverageLoadMillis());
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.objectway.async.shopfinder.cache;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.ShopFinderModelComparison;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * 20 clients search 100 shops for 200 products: like the real traffic, a few popular products take
+ * most of the searches (the product of rank r is searched with probability proportional to 1 / r).
+ * Every miss waits a second for the shops, a hit doesn't wait at all; concurrent searches of a product
+ * not cached yet share the requests to the shops.
+ * 
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.cache.ShopFinderCache [searches]
+ */
+public class ShopFinderCache {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderCache.class.getName());
+	
+	private static final int PRODUCTS = 200;
+	
+	public static void main(String[] args) {
+		int searches = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+		List<Shop> shopList = IntStream.range(0, 100)
+				.mapToObj(i -> new Shop("Shop " + i))
+				.collect(Collectors.toList());
+		PriceCache cache = new PriceCache(30, TimeUnit.SECONDS, 10_000);
+		
+		// Zipf distribution: cumulative weights of the products.
+		double[] cumulative = new double[PRODUCTS];
+		double sum = 0;
+		for (int rank = 1; rank <= PRODUCTS; rank++) {
+			sum += 1.0 / rank;
+			cumulative[rank - 1] = sum;
+		}
+		Random random = new Random(42);
+		List<String> products = IntStream.range(0, searches)
+				.mapToObj(i -> {
+					double r = random.nextDouble() * cumulative[PRODUCTS - 1];
+					int rank = 0;
+					while (cumulative[rank] < r) {
+						rank++;
+					}
+					return "Product " + (rank + 1);
+				})
+				.collect(Collectors.toList());
+		
+		ExecutorService clients = Executors.newFixedThreadPool(20);
+		long start = System.currentTimeMillis();
+		List<CompletableFuture<List<String>>> results = products.stream()
+				.map(product -> CompletableFuture.supplyAsync(
+						() -> ShopFinderModelComparison.findPricesCached(shopList, product, cache), clients))
+				.collect(Collectors.toList());
+		results.forEach(CompletableFuture::join);
+		long duration = System.currentTimeMillis() - start;
+		clients.shutdown();
+		
+		logger.info("{} searches of {} shops in {} secs, {} without cache.", searches, shopList.size(), duration / 1000f,
+				searches * Shop.DELAY_MILLIS / 20 / 1000f);
+		logger.info("Price cache: {}, {} entries.", cache.getStatistics(), cache.size());
+	}
+
+}
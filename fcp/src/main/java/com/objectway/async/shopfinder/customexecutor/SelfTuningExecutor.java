@@ -0,0 +1,150 @@
+package com.objectway.async.shopfinder.customexecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * A thread pool that sizes itself with the formula of "Java Concurrency in Practice":
+ *   N_threads = N_cpu * U * (1 + W / C)
+ * where U is the target CPU utilization (0 < U <= 1) and W / C is the ratio between the time a task
+ * waits (for I/O, a remote shop...) and the time it computes. Math.min(shops, 100) ignores the ratio:
+ * with 9 shops it's fine, with thousands of shops it caps the throughput at 100 quotes per latency.
+ *
+ * The ratio is measured: for every task the wall time and the CPU time of the thread running it
+ * (ThreadMXBean) are recorded, W = wall - CPU and C = CPU. The ratio is a moving average weighting
+ * the last tasks more (every completed task weights DECAY the previous ones), so it follows changes
+ * of the workload. After every task the pool size is recomputed, between minThreads and maxThreads.
+ *
+ * A thread is created only for a submitted task, so a high ratio with few tasks doesn't create idle
+ * threads, and threads idle for KEEP_ALIVE_SECONDS are released. Threads are daemon.
+ * Without thread CPU time measurement in the JVM the ratio stays 0 and the pool has N_cpu * U threads.
+ */
+public class SelfTuningExecutor extends ThreadPoolExecutor {
+
+	// Weight of the previous measurements at every completed task.
+	public static final double DECAY = 0.9;
+
+	public static final long KEEP_ALIVE_SECONDS = 30;
+
+	// CPU time below this value can't be measured reliably.
+	private static final long MIN_COMPUTE_NANOS = 1_000;
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	private final double targetUtilization;
+	private final int minThreads;
+	private final int maxThreads;
+	private final int cpus = Runtime.getRuntime().availableProcessors();
+	private final boolean cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+	private final ThreadLocal<long[]> taskStart = ThreadLocal.withInitial(() -> new long[2]);
+
+	// Guarded by this.
+	private double waitNanos;
+	private double computeNanos;
+	private volatile double ratio;
+	private volatile int size;
+
+	/**
+	 * A pool with target utilization 1, from 1 to 256 threads.
+	 */
+	public SelfTuningExecutor() {
+		this(1.0, 1, 256);
+	}
+
+	public SelfTuningExecutor(double targetUtilization, int minThreads, int maxThreads) {
+		super(minThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreads());
+		if (targetUtilization <= 0 || targetUtilization > 1) {
+			throw new IllegalArgumentException("Target utilization must be in (0, 1]: " + targetUtilization);
+		}
+		this.targetUtilization = targetUtilization;
+		this.minThreads = minThreads;
+		this.maxThreads = maxThreads;
+		allowCoreThreadTimeOut(true);
+		resize(targetSize(0));
+	}
+
+	/**
+	 * The measured ratio W / C between waiting and computing time of the tasks.
+	 */
+	public double getWaitComputeRatio() {
+		return ratio;
+	}
+
+	/**
+	 * The number of threads computed from the measured ratio (the pool grows to it only when tasks are submitted).
+	 */
+	public int getTargetPoolSize() {
+		return size;
+	}
+
+	public double getTargetUtilization() {
+		return targetUtilization;
+	}
+
+	@Override
+	protected void beforeExecute(Thread t, Runnable r) {
+		super.beforeExecute(t, r);
+		long[] start = taskStart.get();
+		start[0] = System.nanoTime();
+		start[1] = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+	}
+
+	@Override
+	protected void afterExecute(Runnable r, Throwable t) {
+		long[] start = taskStart.get();
+		long wall = System.nanoTime() - start[0];
+		long cpu = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() - start[1] : wall;
+		record(Math.max(0, wall - cpu), cpu);
+		super.afterExecute(r, t);
+	}
+
+	private synchronized void record(long wait, long compute) {
+		waitNanos = waitNanos * DECAY + wait;
+		computeNanos = computeNanos * DECAY + Math.max(compute, MIN_COMPUTE_NANOS);
+		ratio = waitNanos / computeNanos;
+		int target = targetSize(ratio);
+		if (target != size) {
+			resize(target);
+		}
+	}
+
+	private int targetSize(double waitComputeRatio) {
+		double threads = cpus * targetUtilization * (1 + waitComputeRatio);
+		return (int) Math.max(minThreads, Math.min(maxThreads, Math.round(threads)));
+	}
+
+	private void resize(int target) {
+		// The maximum size can never be smaller than the core size.
+		if (target > getMaximumPoolSize()) {
+			setMaximumPoolSize(target);
+			setCorePoolSize(target);
+		} else {
+			setCorePoolSize(target);
+			setMaximumPoolSize(target);
+		}
+		size = target;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SelfTuningExecutor[target %d threads, %d live, W/C %.1f, %d tasks completed]",
+				size, getPoolSize(), ratio, getCompletedTaskCount());
+	}
+
+	private static ThreadFactory daemonThreads() {
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, "self-tuning-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+}
@@ -3,10 +3,8 @@ package com.objectway.async.shopfinder.customexecutor;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,14 +20,8 @@ public class ShopFinderCustomExecutor {
 			new Shop("BPM Power"), new Shop("HWOnline"), new Shop("Monclick"), new Shop("Yeppon"),
 			new Shop("NewEgg"));
 	
-	private static final Executor executor = Executors.newFixedThreadPool(Math.min(shopList.size(), 100), new ThreadFactory() {
-		@Override
-		public Thread newThread(Runnable r) {
-			Thread t = new Thread(r);
-			t.setDaemon(true);
-			return t;
-		}
-	});
+	// Sized on the measured wait / compute ratio of the price requests, not on the number of shops.
+	private static final SelfTuningExecutor executor = new SelfTuningExecutor();
 
 	public static void main(String[] args) {
 		
@@ -40,10 +32,24 @@ public class ShopFinderCustomExecutor {
 				
 		printList(shopsAsyncWithExecutor);
 		logger.info("Elapsed time for asynchronous computation: {} secs.", durationAsyncWithExecutor / 1000f);
+		logger.info("{}", executor);
+		
+		// The same executor with a thousand shops: it has already measured the ratio, so it grows.
+		List<Shop> manyShops = IntStream.range(0, 1_000).mapToObj(i -> new Shop("Shop " + i)).collect(Collectors.toList());
+		long startManyShops = System.currentTimeMillis();
+		List<String> shopsManyShops = findPricesAsyncWithCustomExecutor(manyShops, "AMD Ryzen Threadripper 3990WX");
+		long durationManyShops = System.currentTimeMillis() - startManyShops;
+		
+		logger.info("Elapsed time for {} shops: {} secs.", shopsManyShops.size(), durationManyShops / 1000f);
+		logger.info("{}", executor);
 	}
 	
 	private static List<String> findPricesAsyncWithCustomExecutor(String product) {
-		List<CompletableFuture<String>> cf = shopList.stream()
+		return findPricesAsyncWithCustomExecutor(shopList, product);
+	}
+	
+	private static List<String> findPricesAsyncWithCustomExecutor(List<Shop> shops, String product) {
+		List<CompletableFuture<String>> cf = shops.stream()
 				.map(shop -> CompletableFuture.supplyAsync(
 						() -> shop.getShopName() + " price is " + shop.getPrice(product), executor))
 				.collect(Collectors.toList());
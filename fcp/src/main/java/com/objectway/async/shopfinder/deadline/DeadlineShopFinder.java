@@ -0,0 +1,213 @@
+package com.objectway.async.shopfinder.deadline;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.model.Delayer;
+import com.objectway.async.shopfinder.model.LatencyWindow;
+import com.objectway.async.shopfinder.model.Quote;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Queries the shops with a deadline, so one slow shop can't set the latency of the whole search:
+ * findPrices() returns after the deadline at the latest, and a shop missing it is left out or
+ * replaced by a default price.
+ *
+ * With hedging, a shop slower than usual gets a second, identical request: when a request hasn't been
+ * answered within the 95th percentile of the recent latencies of its shop, a hedge is sent and the first
+ * answer wins (the other request is cancelled). A shop is hedged only after MIN_SAMPLES answers, and
+ * only about 5% of its requests are expected to be hedged, so the extra load is bounded while a rare slow
+ * answer no longer delays the search ("The Tail at Scale", Dean and Barroso).
+ *
+ * The latencies of the shops, as seen by findPrices() (hedges included, deadline for the missing shops),
+ * are recorded for the percentiles reported by getLatencyPercentile().
+ */
+public class DeadlineShopFinder {
+
+	private static final Logger logger = LoggerFactory.getLogger(DeadlineShopFinder.class.getName());
+
+	// Answers needed before hedging a shop, and latencies remembered for each shop.
+	public static final int MIN_SAMPLES = 10;
+	public static final int SHOP_WINDOW = 100;
+
+	// Latencies remembered for getLatencyPercentile().
+	public static final int ANSWERS_WINDOW = 10_000;
+
+	public static final double HEDGE_PERCENTILE = 95;
+
+	private final long deadlineMillis;
+	private final boolean hedging;
+	private final Map<String, LatencyWindow> shopLatencies = new ConcurrentHashMap<>();
+	private final LatencyWindow answerLatencies = new LatencyWindow(ANSWERS_WINDOW);
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+
+	public DeadlineShopFinder(long deadlineMillis, boolean hedging) {
+		if (deadlineMillis <= 0) {
+			throw new IllegalArgumentException("deadline must be positive: " + deadlineMillis);
+		}
+		this.deadlineMillis = deadlineMillis;
+		this.hedging = hedging;
+	}
+
+	/**
+	 * The quotes of the shops answering within the deadline, in the order of the shops.
+	 */
+	public List<Quote> findPrices(List<Shop> shops, String product) {
+		return findPrices(shops, product, shop -> Optional.empty());
+	}
+
+	/**
+	 * The quotes of all the shops, with the default price for the shops missing the deadline.
+	 */
+	public List<Quote> findPrices(List<Shop> shops, String product, double defaultPrice) {
+		return findPrices(shops, product, shop -> Optional.of(new Quote(shop.getShopName(), product, defaultPrice)));
+	}
+
+	private List<Quote> findPrices(List<Shop> shops, String product, Function<Shop, Optional<Quote>> fallback) {
+		long start = System.nanoTime();
+		List<CompletableFuture<Optional<Quote>>> quotes = shops.stream()
+				.map(shop -> Delayer.within(hedgedRequest(shop, product), deadlineMillis, TimeUnit.MILLISECONDS)
+						.handle((price, e) -> {
+							long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+							answerLatencies.record(latency);
+							if (e == null) {
+								return Optional.of(new Quote(shop.getShopName(), product, price));
+							}
+							if (e instanceof TimeoutException) {
+								timeouts.increment();
+								// The shop is slower than the deadline: its history must know it.
+								latencies(shop).record(latency);
+							} else {
+								logger.warn("{} didn't answer: {}", shop.getShopName(), e.toString());
+							}
+							return fallback.apply(shop);
+						}))
+				.collect(Collectors.toList());
+
+		return quotes.stream()
+				.map(CompletableFuture::join)
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.collect(Collectors.toList());
+	}
+
+	private CompletableFuture<Double> hedgedRequest(Shop shop, String product) {
+		LatencyWindow history = latencies(shop);
+		if (!hedging || history.size() < MIN_SAMPLES) {
+			return request(shop, product, history);
+		}
+
+		CompletableFuture<Double> result = new CompletableFuture<>();
+		AtomicInteger outstanding = new AtomicInteger(1);
+		CompletableFuture<Double> primary = request(shop, product, history);
+		settle(primary, result, outstanding);
+
+		AtomicReference<CompletableFuture<Double>> hedge = new AtomicReference<>();
+		CompletableFuture<Void> hedgeTimer = Delayer.delay(history.percentile(HEDGE_PERCENTILE), TimeUnit.MILLISECONDS);
+		hedgeTimer.thenRun(() -> {
+			if (result.isDone()) {
+				return;
+			}
+			hedges.increment();
+			outstanding.incrementAndGet();
+			CompletableFuture<Double> request = request(shop, product, history);
+			hedge.set(request);
+			settle(request, result, outstanding);
+			// The result may have completed before the hedge was published.
+			if (result.isDone()) {
+				request.cancel(false);
+			}
+		});
+
+		// The first answer wins: the timer and the slower request are cancelled.
+		result.whenComplete((price, e) -> {
+			hedgeTimer.cancel(false);
+			primary.cancel(false);
+			CompletableFuture<Double> request = hedge.get();
+			if (request != null) {
+				request.cancel(false);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Completes the result with the first price; fails it when the last outstanding request fails.
+	 */
+	private static void settle(CompletableFuture<Double> request, CompletableFuture<Double> result, AtomicInteger outstanding) {
+		request.whenComplete((price, e) -> {
+			if (e == null) {
+				result.complete(price);
+			} else if (outstanding.decrementAndGet() == 0) {
+				result.completeExceptionally(e);
+			}
+		});
+	}
+
+	private static CompletableFuture<Double> request(Shop shop, String product, LatencyWindow history) {
+		long start = System.nanoTime();
+		CompletableFuture<Double> price = shop.getPriceAsync(product);
+		price.thenRun(() -> history.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+		return price;
+	}
+
+	private LatencyWindow latencies(Shop shop) {
+		return shopLatencies.computeIfAbsent(shop.getShopName(), name -> new LatencyWindow(SHOP_WINDOW));
+	}
+
+	/**
+	 * The percentile (0 < percentile <= 100) of the latencies of the shops in the last searches, in milliseconds.
+	 */
+	public long getLatencyPercentile(double percentile) {
+		return answerLatencies.percentile(percentile);
+	}
+
+	/**
+	 * The hedged requests sent.
+	 */
+	public long getHedges() {
+		return hedges.sum();
+	}
+
+	/**
+	 * The shops that missed the deadline.
+	 */
+	public long getTimeouts() {
+		return timeouts.sum();
+	}
+
+	/**
+	 * Clears the counters and the latencies of getLatencyPercentile(), keeping the history of the shops
+	 * used for hedging.
+	 */
+	public void resetStatistics() {
+		answerLatencies.clear();
+		hedges.reset();
+		timeouts.reset();
+	}
+
+	public long getDeadlineMillis() {
+		return deadlineMillis;
+	}
+
+	public boolean isHedging() {
+		return hedging;
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.objectway.async.shopfinder.deadline;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.model.Quote;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * 100 shops usually answering in 100-300 ms, but 3% of the requests take 2-10 secs. Without a deadline
+ * almost every search would wait for a slow shop: the chance that none of the 100 shops is slow is 0.97^100, about 5%.
+ * The same searches run with a deadline of 1 sec, first without and then with hedged requests:
+ * hedging brings the 99th percentile of the shop latencies from the deadline down to a few hundred ms,
+ * with 5-10% more requests.
+ * 
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.deadline.ShopFinderDeadline [searches]
+ */
+public class ShopFinderDeadline {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderDeadline.class.getName());
+	
+	private static final String PRODUCT = "AMD Ryzen Threadripper 3990WX";
+	
+	private static final long DEADLINE_MILLIS = 1_000;
+	
+	public static void main(String[] args) {
+		int searches = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		List<Shop> shopList = IntStream.range(0, 100)
+				.mapToObj(i -> new UnreliableShop("Shop " + i))
+				.collect(Collectors.toList());
+		
+		DeadlineShopFinder deadlineOnly = new DeadlineShopFinder(DEADLINE_MILLIS, false);
+		search("Deadline", deadlineOnly, shopList, searches);
+		
+		DeadlineShopFinder hedged = new DeadlineShopFinder(DEADLINE_MILLIS, true);
+		// Every shop needs some answers before being hedged.
+		for (int i = 0; i < DeadlineShopFinder.MIN_SAMPLES; i++) {
+			hedged.findPrices(shopList, PRODUCT);
+		}
+		hedged.resetStatistics();
+		search("Deadline and hedging", hedged, shopList, searches);
+	}
+	
+	private static void search(String model, DeadlineShopFinder finder, List<Shop> shops, int searches) {
+		long start = System.currentTimeMillis();
+		int quotes = 0;
+		for (int i = 0; i < searches; i++) {
+			List<Quote> prices = finder.findPrices(shops, PRODUCT);
+			quotes += prices.size();
+		}
+		long duration = System.currentTimeMillis() - start;
+		logger.info("{}: {} searches in {} secs, {} quotes of {}, {} missed deadlines, {} hedges sent.", model, searches,
+				duration / 1000f, quotes, searches * shops.size(), finder.getTimeouts(), finder.getHedges());
+		logger.info("{}: shop latency p50 {} ms, p95 {} ms, p99 {} ms.", model, finder.getLatencyPercentile(50),
+				finder.getLatencyPercentile(95), finder.getLatencyPercentile(99));
+	}
+	
+	/**
+	 * A shop answering in 100-300 ms, 3% of the times in 2-10 secs.
+	 */
+	private static class UnreliableShop extends Shop {
+		
+		private UnreliableShop(String shopName) {
+			super(shopName);
+		}
+		
+		@Override
+		protected long nextDelayMillis() {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			return random.nextDouble() < 0.03 ? random.nextLong(2_000, 10_001) : random.nextLong(100, 301);
+		}
+		
+	}
+
+}
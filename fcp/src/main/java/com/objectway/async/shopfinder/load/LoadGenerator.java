@@ -0,0 +1,256 @@
+package com.objectway.async.shopfinder.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+import com.objectway.async.shopfinder.model.LatencyWindow;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Runs searches against a model of the shop finder at a given rate, and reports the latency percentiles.
+ *
+ * The load is open-loop: searches arrive like independent users (Poisson arrivals, searchesPerSecond
+ * on average) whether the previous ones have finished or not, so a model slower than the arrivals
+ * builds up a backlog, as it would in production. A closed loop (next search when the previous one
+ * ends) slows the load down to the speed of the model and hides the queueing.
+ * The latency of a search is measured from its scheduled arrival, not from when a client thread
+ * picked it up, so a late start counts against the model (no "coordinated omission").
+ *
+ * Every search runs on its own client thread, because the models block until all the prices are in.
+ * A sampler counts the live threads every SAMPLE_MILLIS: the threads of the harness (named "load-")
+ * are left out, and so are the threads already alive when the run starts (those of the JVM, of the
+ * Delayer, the idle workers of the runs before), so the peak is the threads the model added.
+ * The searches still running after the drain aren't counted, but the run waits for them: left running,
+ * they would slow down the next run on the same pools.
+ */
+public class LoadGenerator {
+
+	public static final long SAMPLE_MILLIS = 10;
+
+	// How long the searches still running at the end of the load are waited for.
+	public static final long DRAIN_SECONDS = 60;
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	private final List<Shop> shops;
+	private final String product;
+	private final double searchesPerSecond;
+	private final long durationMillis;
+
+	public LoadGenerator(List<Shop> shops, String product, double searchesPerSecond, long durationMillis) {
+		if (searchesPerSecond <= 0) {
+			throw new IllegalArgumentException("searchesPerSecond must be positive: " + searchesPerSecond);
+		}
+		if (durationMillis <= 0) {
+			throw new IllegalArgumentException("durationMillis must be positive: " + durationMillis);
+		}
+		this.shops = new ArrayList<>(shops);
+		this.product = product;
+		this.searchesPerSecond = searchesPerSecond;
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * Runs the load against the model, e.g. ShopFinderModelComparison::findPricesNonBlocking.
+	 */
+	public Report run(String model, BiFunction<List<Shop>, String, List<String>> search) {
+		int baselineThreads = modelThreads();
+		AtomicInteger clientCount = new AtomicInteger();
+		ExecutorService clients = Executors.newCachedThreadPool(r -> daemon(r, "load-client-" + clientCount.incrementAndGet()));
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "load-sampler"));
+		AtomicInteger peakThreads = new AtomicInteger();
+		sampler.scheduleAtFixedRate(() -> peakThreads.accumulateAndGet(modelThreads(), Math::max),
+				0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+
+		List<CompletableFuture<Long>> searches = new ArrayList<>();
+		long start = System.nanoTime();
+		long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		long arrival = start;
+		while (true) {
+			// Exponential interarrival times: a Poisson process.
+			arrival += (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) / searchesPerSecond * 1e9);
+			if (arrival >= end) {
+				break;
+			}
+			long wait = arrival - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			long scheduled = arrival;
+			searches.add(CompletableFuture.supplyAsync(() -> {
+				search.apply(shops, product);
+				return System.nanoTime() - scheduled;
+			}, clients));
+		}
+
+		LatencyWindow latencies = new LatencyWindow(Math.max(1, searches.size()));
+		int failed = 0;
+		int incomplete = 0;
+		long drainEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+		for (CompletableFuture<Long> latency : searches) {
+			try {
+				latencies.record(TimeUnit.NANOSECONDS.toMillis(
+						latency.get(Math.max(0, drainEnd - System.nanoTime()), TimeUnit.NANOSECONDS)));
+			} catch (TimeoutException e) {
+				incomplete++;
+			} catch (ExecutionException e) {
+				failed++;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				incomplete++;
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		sampler.shutdownNow();
+		// The incomplete searches aren't interrupted, that would only flood the log: they end on their own.
+		clients.shutdown();
+		try {
+			clients.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		return new Report(model, searches.size(), latencies.size(), failed, incomplete,
+				latencies.size() / (elapsed / 1e9), latencies, Math.max(0, peakThreads.get() - baselineThreads),
+				clientCount.get());
+	}
+
+	private static int modelThreads() {
+		int threads = 0;
+		for (ThreadInfo info : threadMXBean.getThreadInfo(threadMXBean.getAllThreadIds())) {
+			if (info != null && !info.getThreadName().startsWith("load-")) {
+				threads++;
+			}
+		}
+		return threads;
+	}
+
+	private static Thread daemon(Runnable r, String name) {
+		Thread t = new Thread(r, name);
+		t.setDaemon(true);
+		return t;
+	}
+
+	/**
+	 * The results of a load run.
+	 */
+	public static final class Report {
+
+		private final String model;
+		private final int searches;
+		private final int completed;
+		private final int failed;
+		private final int incomplete;
+		private final double throughput;
+		private final long p50;
+		private final long p95;
+		private final long p99;
+		private final long max;
+		private final int peakThreads;
+		private final int clientThreads;
+
+		private Report(String model, int searches, int completed, int failed, int incomplete, double throughput,
+				LatencyWindow latencies, int peakThreads, int clientThreads) {
+			this.model = model;
+			this.searches = searches;
+			this.completed = completed;
+			this.failed = failed;
+			this.incomplete = incomplete;
+			this.throughput = throughput;
+			this.p50 = latencies.percentile(50);
+			this.p95 = latencies.percentile(95);
+			this.p99 = latencies.percentile(99);
+			this.max = latencies.percentile(100);
+			this.peakThreads = peakThreads;
+			this.clientThreads = clientThreads;
+		}
+
+		public String getModel() {
+			return model;
+		}
+
+		public int getSearches() {
+			return searches;
+		}
+
+		public int getCompleted() {
+			return completed;
+		}
+
+		public int getFailed() {
+			return failed;
+		}
+
+		/**
+		 * Searches not finished DRAIN_SECONDS after the end of the load.
+		 */
+		public int getIncomplete() {
+			return incomplete;
+		}
+
+		/**
+		 * Completed searches per second.
+		 */
+		public double getThroughput() {
+			return throughput;
+		}
+
+		/**
+		 * The percentile of the search latency in milliseconds: 50, 95, 99 or 100 (the maximum).
+		 */
+		public long getLatencyPercentile(int percentile) {
+			switch (percentile) {
+			case 50:
+				return p50;
+			case 95:
+				return p95;
+			case 99:
+				return p99;
+			case 100:
+				return max;
+			default:
+				throw new IllegalArgumentException("Only the 50th, 95th, 99th and 100th percentiles are recorded: " + percentile);
+			}
+		}
+
+		/**
+		 * The peak of the threads added by the model: the live threads, the threads of the load generator
+		 * and the ones alive when the run started excluded.
+		 */
+		public int getPeakThreads() {
+			return peakThreads;
+		}
+
+		/**
+		 * The client threads started by the load generator: at least the peak of the concurrent searches.
+		 */
+		public int getClientThreads() {
+			return clientThreads;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-16s %5d/%-5d searches, %3d failed, %3d incomplete, %6.2f/s, "
+					+ "p50 %6d ms, p95 %6d ms, p99 %6d ms, max %6d ms, peak threads %4d, clients %4d",
+					model, completed, searches, failed, incomplete, throughput, p50, p95, p99, max, peakThreads, clientThreads);
+		}
+
+	}
+
+}
@@ -0,0 +1,81 @@
+package com.objectway.async.shopfinder.load;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.ShopFinderModelComparison;
+import com.objectway.async.shopfinder.customexecutor.SelfTuningExecutor;
+import com.objectway.async.shopfinder.model.LatencyDistribution;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Runs the same open-loop load against the execution models of ShopFinderModelComparison and reports,
+ * for each model, throughput, latency percentiles and threads. The shops share a latency distribution
+ * with a median of about 200 ms: constant, uniform, log-normal or heavy-tailed (Pareto).
+ * The sequential model is left out: with 50 shops a search takes 10 secs.
+ * 
+ * Every run waits for its incomplete searches before the next model starts, and counts only the threads
+ * it adds: the parallel model reuses the idle workers of the common pool left by the async one, so its
+ * peak can be lower than the threads it needs.
+ * 
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.load.ShopFinderLoadTest
+ *            [constant|uniform|lognormal|pareto|all] [shops] [searches per second] [seconds]
+ */
+public class ShopFinderLoadTest {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderLoadTest.class.getName());
+	
+	private static final Map<String, LatencyDistribution> distributions = new LinkedHashMap<>();
+	
+	static {
+		distributions.put("constant", LatencyDistribution.constant(200));
+		distributions.put("uniform", LatencyDistribution.uniform(100, 300));
+		distributions.put("lognormal", LatencyDistribution.logNormal(200, 0.5));
+		distributions.put("pareto", LatencyDistribution.pareto(140, 2.0, 10_000));
+	}
+	
+	public static void main(String[] args) throws InterruptedException {
+		String distribution = args.length > 0 ? args[0] : "lognormal";
+		int shops = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		double rate = args.length > 2 ? Double.parseDouble(args[2]) : 5;
+		int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		
+		List<String> names = distribution.equals("all") ? 
+				distributions.keySet().stream().collect(Collectors.toList()) : Arrays.asList(distribution);
+		for (String name : names) {
+			LatencyDistribution latency = distributions.get(name);
+			if (latency == null) {
+				throw new IllegalArgumentException("Unknown distribution: " + name + ", expected one of " + distributions.keySet());
+			}
+			List<Shop> shopList = IntStream.range(0, shops)
+					.mapToObj(i -> new Shop("Shop " + i, latency))
+					.collect(Collectors.toList());
+			LoadGenerator load = new LoadGenerator(shopList, "AMD Ryzen Threadripper 3990WX", rate, seconds * 1000L);
+			
+			logger.info("{} shops, {}, {} searches per second for {} secs:", shops, latency, rate, seconds);
+			SelfTuningExecutor executor = new SelfTuningExecutor();
+			logger.info("{}", load.run("custom executor",
+					(shopsToSearch, product) -> ShopFinderModelComparison.findPricesAsyncWithCustomExecutor(shopsToSearch, product, executor)));
+			executor.shutdown();
+			// Its idle threads would be counted by the next model.
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+			logger.info("{}", load.run("non-blocking", ShopFinderModelComparison::findPricesNonBlocking));
+			if (ShopFinderModelComparison.isVirtualThreadsSupported()) {
+				logger.info("{}", load.run("virtual threads", ShopFinderModelComparison::findPricesVirtualThreads));
+			}
+			logger.info("{}", load.run("async", ShopFinderModelComparison::findPricesAsync));
+			logger.info("{}", load.run("parallel", ShopFinderModelComparison::findPricesParallel));
+		}
+	}
+
+}
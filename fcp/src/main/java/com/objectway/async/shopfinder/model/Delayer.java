@@ -0,0 +1,95 @@
+package com.objectway.async.shopfinder.model;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Simulates latency without blocking any thread. Thread.sleep() holds a whole thread for the duration
+ * of the delay: here the delay is a timer of a shared ScheduledExecutorService, and the future is
+ * completed by its thread when the timer expires. Thousands of pending delays cost a few objects
+ * in the queue of the scheduler, not thousands of threads.
+ *
+ * The scheduler has a single daemon thread, so the value suppliers and the stages depending on the
+ * returned futures (thenApply(), thenAccept()... without the Async suffix) must be short: heavy work
+ * must be moved to another executor with the Async versions of the methods.
+ * Cancelling a returned future removes its timer.
+ */
+public final class Delayer {
+
+	private static final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+		Thread t = new Thread(r, "shop-delayer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	static {
+		scheduler.setRemoveOnCancelPolicy(true);
+	}
+
+	private Delayer() {}
+
+	/**
+	 * Returns a future completed with the value of the supplier after the delay.
+	 * An exception thrown by the supplier completes the future exceptionally.
+	 */
+	public static <T> CompletableFuture<T> delay(long delay, TimeUnit unit, Supplier<T> value) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		ScheduledFuture<?> timer = scheduler.schedule(() -> {
+			try {
+				future.complete(value.get());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}, delay, unit);
+		future.whenComplete((result, e) -> {
+			if (future.isCancelled()) {
+				timer.cancel(false);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Returns a future completed after the delay.
+	 */
+	public static CompletableFuture<Void> delay(long delay, TimeUnit unit) {
+		return delay(delay, unit, () -> null);
+	}
+
+	/**
+	 * Returns a future completed like the given one, or failed with a TimeoutException if the given one
+	 * doesn't complete within the timeout: the Java 8 equivalent of CompletableFuture.orTimeout() (JDK 9).
+	 * On timeout the given future is cancelled, so a pending getPriceAsync() releases its timer too.
+	 */
+	public static <T> CompletableFuture<T> within(CompletableFuture<T> future, long timeout, TimeUnit unit) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		ScheduledFuture<?> timer = scheduler.schedule(() -> {
+			if (result.completeExceptionally(new TimeoutException("No result within " + timeout + " " + unit))) {
+				future.cancel(false);
+			}
+		}, timeout, unit);
+		future.whenComplete((value, e) -> {
+			timer.cancel(false);
+			if (e == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * The number of delays still waiting for their timer.
+	 */
+	public static int getPendingDelays() {
+		return scheduler.getQueue().size();
+	}
+
+}
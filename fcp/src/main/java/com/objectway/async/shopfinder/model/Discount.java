@@ -0,0 +1,53 @@
+package com.objectway.async.shopfinder.model;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * A remote discount service: applyDiscount() blocks for DELAY_MILLIS, like a call over the network.
+ */
+public final class Discount {
+	
+	private static final Logger logger = LoggerFactory.getLogger(Discount.class.getName());
+	
+	public static final long DELAY_MILLIS = 1_000;
+	
+	public enum Code {
+		NONE(0), SILVER(5), GOLD(10), PLATINUM(15), DIAMOND(20);
+		
+		private final int percentage;
+		
+		Code(int percentage) {
+			this.percentage = percentage;
+		}
+		
+		public int getPercentage() {
+			return percentage;
+		}
+		
+		static Code random() {
+			Code[] codes = values();
+			return codes[ThreadLocalRandom.current().nextInt(codes.length)];
+		}
+	}
+	
+	private Discount() {}
+	
+	/**
+	 * The price of the quote with its discount code applied.
+	 */
+	public static double applyDiscount(Quote quote) {
+		try {
+			Thread.sleep(DELAY_MILLIS);
+		} catch (InterruptedException e) {
+			logger.error("Execution Interrupted!");
+			Thread.currentThread().interrupt();
+		}
+		return quote.getPrice() * (100 - quote.getDiscountCode().getPercentage()) / 100;
+	}
+	
+}
@@ -0,0 +1,49 @@
+package com.objectway.async.shopfinder.model;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * A remote exchange rate service: getRate() blocks for DELAY_MILLIS, like a call over the network.
+ */
+public final class ExchangeService {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ExchangeService.class.getName());
+	
+	public static final long DELAY_MILLIS = 1_000;
+	
+	public enum Money {
+		EUR, USD, GBP, CHF
+	}
+	
+	// The value of a unit of every currency in euros.
+	private static final Map<Money, Double> euroValues = new EnumMap<>(Money.class);
+	
+	static {
+		euroValues.put(Money.EUR, 1.0);
+		euroValues.put(Money.USD, 0.92);
+		euroValues.put(Money.GBP, 1.17);
+		euroValues.put(Money.CHF, 1.05);
+	}
+	
+	private ExchangeService() {}
+	
+	/**
+	 * The amount of target currency worth a unit of source currency.
+	 */
+	public static double getRate(Money source, Money target) {
+		try {
+			Thread.sleep(DELAY_MILLIS);
+		} catch (InterruptedException e) {
+			logger.error("Execution Interrupted!");
+			Thread.currentThread().interrupt();
+		}
+		return euroValues.get(source) / euroValues.get(target);
+	}
+	
+}
@@ -0,0 +1,86 @@
+package com.objectway.async.shopfinder.model;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * The latency of the price requests of a simulated shop. A constant latency hides the tail that decides
+ * how a model behaves under load: real services are closer to a log-normal latency (most requests near
+ * the median, a few several times slower) or to a heavy-tailed one (rare requests orders of magnitude slower).
+ * Samples come from ThreadLocalRandom, so a distribution can be shared by many shops and threads.
+ */
+public final class LatencyDistribution {
+
+	private final String description;
+	private final long medianMillis;
+	private final LongSupplier sampler;
+
+	private LatencyDistribution(String description, long medianMillis, LongSupplier sampler) {
+		this.description = description;
+		this.medianMillis = medianMillis;
+		this.sampler = sampler;
+	}
+
+	public static LatencyDistribution constant(long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("millis must not be negative: " + millis);
+		}
+		return new LatencyDistribution("constant " + millis + " ms", millis, () -> millis);
+	}
+
+	/**
+	 * Every latency between minMillis and maxMillis (both included) is equally likely.
+	 */
+	public static LatencyDistribution uniform(long minMillis, long maxMillis) {
+		if (minMillis < 0 || maxMillis < minMillis) {
+			throw new IllegalArgumentException("Invalid range: [" + minMillis + ", " + maxMillis + "]");
+		}
+		return new LatencyDistribution("uniform " + minMillis + "-" + maxMillis + " ms", (minMillis + maxMillis) / 2,
+				() -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1));
+	}
+
+	/**
+	 * The latency is medianMillis * e^(sigma * N(0, 1)): with sigma 0.5 the 99th percentile is about
+	 * 3.2 times the median, with sigma 1 about 10 times.
+	 */
+	public static LatencyDistribution logNormal(long medianMillis, double sigma) {
+		if (medianMillis <= 0 || sigma < 0) {
+			throw new IllegalArgumentException("Invalid log-normal: median " + medianMillis + ", sigma " + sigma);
+		}
+		return new LatencyDistribution(String.format("log-normal median %d ms, sigma %.2f", medianMillis, sigma), medianMillis,
+				() -> Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+	}
+
+	/**
+	 * A Pareto latency: at least minMillis, and P(latency > x) = (minMillis / x)^alpha, so the lower alpha
+	 * the heavier the tail (with alpha <= 2 the variance is infinite). Capped at maxMillis, like a
+	 * request abandoned by a client timeout.
+	 */
+	public static LatencyDistribution pareto(long minMillis, double alpha, long maxMillis) {
+		if (minMillis <= 0 || alpha <= 0 || maxMillis < minMillis) {
+			throw new IllegalArgumentException("Invalid Pareto: min " + minMillis + ", alpha " + alpha + ", max " + maxMillis);
+		}
+		long median = Math.min(maxMillis, Math.round(minMillis * Math.pow(2, 1 / alpha)));
+		return new LatencyDistribution(String.format("Pareto min %d ms, alpha %.2f, max %d ms", minMillis, alpha, maxMillis),
+				median, () -> {
+					double sample = minMillis / Math.pow(1 - ThreadLocalRandom.current().nextDouble(), 1 / alpha);
+					return (long) Math.min(maxMillis, sample);
+				});
+	}
+
+	public long nextMillis() {
+		return sampler.getAsLong();
+	}
+
+	public long getMedianMillis() {
+		return medianMillis;
+	}
+
+	@Override
+	public String toString() {
+		return description;
+	}
+
+}
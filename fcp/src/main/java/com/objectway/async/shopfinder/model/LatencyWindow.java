@@ -0,0 +1,62 @@
+package com.objectway.async.shopfinder.model;
+
+import java.util.Arrays;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * The last latencies recorded (a ring buffer of the given capacity), with their percentiles.
+ * The oldest latency is overwritten by the newest one, so the percentiles follow changes of the latency.
+ * A window as large as the latencies of a run keeps all of them, for the percentiles of the whole run.
+ * Thread-safe: percentile() copies and sorts the window, cheap for a few thousand latencies.
+ */
+public class LatencyWindow {
+
+	private final long[] latencies;
+	private int next;
+	private int size;
+
+	public LatencyWindow(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		latencies = new long[capacity];
+	}
+
+	public synchronized void record(long latency) {
+		latencies[next] = latency;
+		next = (next + 1) % latencies.length;
+		size = Math.min(size + 1, latencies.length);
+	}
+
+	/**
+	 * The number of latencies in the window.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * The nearest-rank percentile (0 < percentile <= 100) of the latencies in the window, 0 if it's empty.
+	 */
+	public long percentile(double percentile) {
+		if (percentile <= 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be in (0, 100]: " + percentile);
+		}
+		long[] sorted;
+		synchronized (this) {
+			sorted = Arrays.copyOf(latencies, size);
+		}
+		if (sorted.length == 0) {
+			return 0;
+		}
+		Arrays.sort(sorted);
+		return sorted[(int) Math.ceil(percentile / 100 * sorted.length) - 1];
+	}
+
+	public synchronized void clear() {
+		next = 0;
+		size = 0;
+	}
+
+}
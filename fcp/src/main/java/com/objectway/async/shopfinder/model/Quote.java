@@ -0,0 +1,63 @@
+package com.objectway.async.shopfinder.model;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * The price of a product returned by a shop, with its discount code.
+ */
+public class Quote {
+
+	private final String shopName;
+	private final String product;
+	private final double price;
+	private final Discount.Code discountCode;
+
+	public Quote(String shopName, String product, double price) {
+		this(shopName, product, price, Discount.Code.NONE);
+	}
+
+	public Quote(String shopName, String product, double price, Discount.Code discountCode) {
+		this.shopName = shopName;
+		this.product = product;
+		this.price = price;
+		this.discountCode = discountCode;
+	}
+
+	/**
+	 * Parses a quote of Shop.getQuote(), "ShopName:price:DiscountCode".
+	 * @throws IllegalArgumentException if the text is not a quote.
+	 */
+	public static Quote parse(String text, String product) {
+		String[] fields = text.split(":");
+		if (fields.length != 3) {
+			throw new IllegalArgumentException("Not a quote: " + text);
+		}
+		try {
+			return new Quote(fields[0], product, Double.parseDouble(fields[1]), Discount.Code.valueOf(fields[2]));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Not a quote: " + text, e);
+		}
+	}
+
+	public String getShopName() {
+		return shopName;
+	}
+
+	public String getProduct() {
+		return product;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public Discount.Code getDiscountCode() {
+		return discountCode;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s price is %.2f", shopName, price);
+	}
+
+}
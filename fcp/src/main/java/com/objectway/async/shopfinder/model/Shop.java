@@ -1,6 +1,14 @@
 package com.objectway.async.shopfinder.model;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,24 +17,96 @@ public class Shop {
 	
 	private static final Logger logger = LoggerFactory.getLogger(Shop.class.getName());
 	
+	// The default latency of a price request.
+	public static final long DELAY_MILLIS = 1_000;
+	
 	private final String shopName;
+	private final LatencyDistribution latency;
 	
 	public Shop(String shopName) {
+		this(shopName, DELAY_MILLIS);
+	}
+	
+	/**
+	 * A shop answering price requests after the given latency.
+	 */
+	public Shop(String shopName, long delayMillis) {
+		this(shopName, LatencyDistribution.constant(delayMillis));
+	}
+	
+	/**
+	 * A shop answering every price request after a latency drawn from the distribution.
+	 */
+	public Shop(String shopName, LatencyDistribution latency) {
 		this.shopName = shopName;
+		this.latency = latency;
 	}
 	
 	public double getPrice(String product) {
 		return calculatePrice(product);
 	}
 	
+	/**
+	 * The quote of the product as sent by the shop, "ShopName:price:DiscountCode": see Quote.parse().
+	 */
+	public String getQuote(String product) {
+		double price = calculatePrice(product);
+		return String.format(Locale.ROOT, "%s:%.2f:%s", shopName, price, Discount.Code.random());
+	}
+	
+	/**
+	 * The non-blocking version of getPrice(): the latency is a timer of the Delayer, so no thread waits
+	 * for the price. The returned future is completed by the thread of the Delayer.
+	 */
+	public CompletableFuture<Double> getPriceAsync(String product) {
+		return Delayer.delay(nextDelayMillis(), TimeUnit.MILLISECONDS, () -> price(product));
+	}
+	
+	/**
+	 * The prices of many products with a single request: the whole batch pays the latency once.
+	 * The prices are returned in the iteration order of the products.
+	 */
+	public Map<String, Double> getPrices(Collection<String> products) {
+		delay(nextDelayMillis());
+		return prices(products);
+	}
+	
+	/**
+	 * The non-blocking version of getPrices().
+	 */
+	public CompletableFuture<Map<String, Double>> getPricesAsync(Collection<String> products) {
+		List<String> batch = new ArrayList<>(products);
+		return Delayer.delay(nextDelayMillis(), TimeUnit.MILLISECONDS, () -> prices(batch));
+	}
+	
+	/**
+	 * The latency of the next price request, drawn from the latency distribution of the shop.
+	 * Subclasses simulate other latencies (e.g. depending on the load) overriding this method.
+	 */
+	protected long nextDelayMillis() {
+		return latency.nextMillis();
+	}
+	
 	private double calculatePrice(String product) {
-		delay();
+		delay(nextDelayMillis());
+		return price(product);
+	}
+	
+	private static Map<String, Double> prices(Collection<String> products) {
+		Map<String, Double> prices = new LinkedHashMap<>();
+		for (String product : products) {
+			prices.put(product, price(product));
+		}
+		return prices;
+	}
+	
+	private static double price(String product) {
 		return getRandomLong(1_000, 10_000) * (double)product.charAt(0) + (double)product.charAt(1);
 	}
 
-	private static void delay() {
+	private static void delay(long millis) {
 		try {
-			Thread.sleep(1_000);
+			Thread.sleep(millis);
 		}
 		catch(InterruptedException e) {
 			logger.error("Execution Interrupted!");
@@ -42,4 +122,15 @@ public class Shop {
 		return shopName;
 	}
 	
+	/**
+	 * The median latency of the price requests.
+	 */
+	public long getDelayMillis() {
+		return latency.getMedianMillis();
+	}
+	
+	public LatencyDistribution getLatency() {
+		return latency;
+	}
+	
 }
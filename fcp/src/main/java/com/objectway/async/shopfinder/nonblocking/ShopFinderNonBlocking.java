@@ -0,0 +1,52 @@
+package com.objectway.async.shopfinder.nonblocking;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.model.Delayer;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Queries 100,000 shops at once with Shop.getPriceAsync(). With getPrice() every pending quote holds
+ * a thread: 100,000 shops would need 100,000 threads to answer in a second. Here the quotes wait on
+ * the timers of the Delayer and the whole search runs on the main thread plus the Delayer thread.
+ * 
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.nonblocking.ShopFinderNonBlocking [shops]
+ */
+public class ShopFinderNonBlocking {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderNonBlocking.class.getName());
+
+	public static void main(String[] args) {
+		int shops = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		List<Shop> shopList = IntStream.range(0, shops)
+				.mapToObj(i -> new Shop("Shop " + i))
+				.collect(Collectors.toList());
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
+		
+		long start = System.currentTimeMillis();
+		List<CompletableFuture<Double>> prices = shopList.stream()
+				.map(shop -> shop.getPriceAsync("AMD Ryzen Threadripper 3990WX"))
+				.collect(Collectors.toList());
+		logger.info("{} requests sent in {} ms, {} delays pending.", shops, System.currentTimeMillis() - start, 
+				Delayer.getPendingDelays());
+		
+		double best = prices.stream().mapToDouble(CompletableFuture::join).min().orElse(Double.NaN);
+		long duration = System.currentTimeMillis() - start;
+		
+		logger.info("Best price of {} shops: {}", shops, best);
+		logger.info("Elapsed time for non-blocking computation: {} secs, peak live threads: {}.", 
+				duration / 1000f, threads.getPeakThreadCount());
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.objectway.async.shopfinder.pipeline;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import com.objectway.async.shopfinder.model.Discount;
+import com.objectway.async.shopfinder.model.ExchangeService;
+import com.objectway.async.shopfinder.model.ExchangeService.Money;
+import com.objectway.async.shopfinder.model.LatencyWindow;
+import com.objectway.async.shopfinder.model.Quote;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Prices a product in a shop with a pipeline of dependent and independent stages:
+ *
+ *   QUOTE (I/O) -> PARSE (CPU) -> DISCOUNT (I/O) --+
+ *                                                 +--> price in the target currency
+ *   EXCHANGE_RATE (I/O) --------------------------+
+ *
+ * thenApplyAsync() chains the CPU stage, thenCompose() the I/O stage depending on its result, and thenCombine()
+ * joins the exchange rate, requested at the same time as the quote: the latency is the one of the slowest
+ * branch, not the sum of all the stages.
+ *
+ * The CPU stages run on the cpu executor, sized on the processors; the blocking I/O stages on the io
+ * executor, sized on the waiting time (e.g. a SelfTuningExecutor). Blocking calls on a pool sized on
+ * the CPUs would leave it idle, CPU work on a pool with hundreds of threads would only add switches.
+ *
+ * The run time of every stage is recorded (queueing on the executors excluded), and so is the TOTAL
+ * latency from the request to the converted price (queueing included).
+ */
+public class QuotePipeline {
+
+	public enum Stage {
+		QUOTE, PARSE, DISCOUNT, EXCHANGE_RATE, TOTAL
+	}
+
+	// Latencies remembered for every stage.
+	public static final int WINDOW = 10_000;
+
+	private final Executor io;
+	private final Executor cpu;
+	private final Money source;
+	private final Money target;
+	private final Map<Stage, LatencyWindow> latencies = new EnumMap<>(Stage.class);
+
+	public QuotePipeline(Executor io, Executor cpu, Money source, Money target) {
+		this.io = io;
+		this.cpu = cpu;
+		this.source = source;
+		this.target = target;
+		for (Stage stage : Stage.values()) {
+			latencies.put(stage, new LatencyWindow(WINDOW));
+		}
+	}
+
+	/**
+	 * The discounted price of the product in the shop, in the target currency.
+	 */
+	public CompletableFuture<String> quote(Shop shop, String product) {
+		long start = System.nanoTime();
+		CompletableFuture<Double> rate = CompletableFuture.supplyAsync(
+				timed(Stage.EXCHANGE_RATE, () -> ExchangeService.getRate(source, target)), io);
+
+		return CompletableFuture.supplyAsync(timed(Stage.QUOTE, () -> shop.getQuote(product)), io)
+				.thenApplyAsync(text -> timed(Stage.PARSE, () -> Quote.parse(text, product)).get(), cpu)
+				.thenCompose(quote -> CompletableFuture.supplyAsync(
+						timed(Stage.DISCOUNT, () -> Discount.applyDiscount(quote)), io))
+				.thenCombine(rate, (price, exchangeRate) -> {
+					record(Stage.TOTAL, start);
+					return String.format("%s price is %.2f %s", shop.getShopName(), price * exchangeRate, target);
+				});
+	}
+
+	public List<String> findPrices(List<Shop> shops, String product) {
+		List<CompletableFuture<String>> cf = shops.stream()
+				.map(shop -> quote(shop, product))
+				.collect(Collectors.toList());
+
+		return cf.stream().map(CompletableFuture::join).collect(Collectors.toList());
+	}
+
+	/**
+	 * The percentile (0 < percentile <= 100) of the latency of the stage in the last quotes, in microseconds
+	 * (parsing takes a few of them).
+	 */
+	public long getLatencyMicros(Stage stage, double percentile) {
+		return latencies.get(stage).percentile(percentile);
+	}
+
+	private <T> Supplier<T> timed(Stage stage, Supplier<T> call) {
+		return () -> {
+			long start = System.nanoTime();
+			try {
+				return call.get();
+			} finally {
+				record(stage, start);
+			}
+		};
+	}
+
+	private void record(Stage stage, long start) {
+		latencies.get(stage).record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.objectway.async.shopfinder.pipeline;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.customexecutor.SelfTuningExecutor;
+import com.objectway.async.shopfinder.model.ExchangeService.Money;
+import com.objectway.async.shopfinder.model.Shop;
+import com.objectway.async.shopfinder.pipeline.QuotePipeline.Stage;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Quotes, discounts and converts to dollars the price of a product in 9 shops. Shops, discount and
+ * exchange rate services answer in 1 sec each: one after the other the stages of a quote take 3 secs,
+ * the pipeline about 2 secs, the quote and the discount, while the exchange rate runs alongside.
+ * 
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.pipeline.ShopFinderPipeline
+ */
+public class ShopFinderPipeline {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderPipeline.class.getName());
+	
+	private static List<Shop> shopList = Arrays.asList(
+			new Shop("Amazon"), new Shop("ePrice"), new Shop("OlloStore"), new Shop("Drako"),
+			new Shop("BPM Power"), new Shop("HWOnline"), new Shop("Monclick"), new Shop("Yeppon"),
+			new Shop("NewEgg"));
+	
+	public static void main(String[] args) {
+		// Two blocking calls per shop at once: starting from a single thread, the pool would grow only
+		// after the first call, and the first stages would queue for a whole second.
+		SelfTuningExecutor io = new SelfTuningExecutor(1.0, 2 * shopList.size(), 256);
+		AtomicInteger cpuThreads = new AtomicInteger();
+		ExecutorService cpu = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+			Thread t = new Thread(r, "pipeline-cpu-" + cpuThreads.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		QuotePipeline pipeline = new QuotePipeline(io, cpu, Money.EUR, Money.USD);
+		
+		long start = System.currentTimeMillis();
+		List<String> prices = pipeline.findPrices(shopList, "AMD Ryzen Threadripper 3990WX");
+		long duration = System.currentTimeMillis() - start;
+		
+		prices.forEach(logger::info);
+		logger.info("Elapsed time for pipelined computation: {} secs.", duration / 1000f);
+		for (Stage stage : Stage.values()) {
+			logger.info("{}: p50 {} ms, max {} ms", stage, pipeline.getLatencyMicros(stage, 50) / 1000f,
+					pipeline.getLatencyMicros(stage, 100) / 1000f);
+		}
+		logger.info("I/O executor: {}", io);
+		io.shutdown();
+		cpu.shutdown();
+	}
+
+}
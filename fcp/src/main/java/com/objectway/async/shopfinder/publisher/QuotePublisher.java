@@ -0,0 +1,207 @@
+package com.objectway.async.shopfinder.publisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.model.Quote;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Publishes the quotes of a product in completion order: the fastest shop first.
+ * findPricesAsync() joins every future before returning its list, so the first price is seen after
+ * the slowest shop has answered; here a quote is delivered as soon as its shop answers.
+ *
+ * Java 8 has no java.util.concurrent.Flow: the publisher implements the Reactive Streams interfaces,
+ * that JDK 9 copied into Flow (on JDK 9 or later org.reactivestreams.FlowAdapters converts them).
+ * Every subscription queries the shops again, and respects the demand of its subscriber:
+ *   1) at most maxConcurrency quotes are requested to the shops or waiting for the subscriber at the
+ *      same time, so a slow subscriber never builds up more than maxConcurrency buffered quotes;
+ *   2) no shop is queried before the first request(n);
+ *   3) cancel() stops querying new shops and cancels the pending requests, e.g. when the subscriber
+ *      has got enough quotes.
+ * A shop failing to answer is left out (and logged); the stream completes when every shop has answered.
+ *
+ * Signals are serialized by a drain loop: whichever thread (the subscriber requesting, a shop answering)
+ * finds the loop free runs it, the others only record that there's more work to do.
+ */
+public class QuotePublisher implements Publisher<Quote> {
+
+	private static final Logger logger = LoggerFactory.getLogger(QuotePublisher.class.getName());
+
+	private final List<Shop> shops;
+	private final String product;
+	private final int maxConcurrency;
+	private final Function<Shop, CompletableFuture<Double>> priceSource;
+
+	/**
+	 * Queries the shops with the non-blocking Shop.getPriceAsync().
+	 */
+	public QuotePublisher(List<Shop> shops, String product, int maxConcurrency) {
+		this(shops, product, maxConcurrency, (Shop shop) -> shop.getPriceAsync(product));
+	}
+
+	/**
+	 * Queries the shops with the blocking Shop.getPrice(), running on the executor.
+	 */
+	public QuotePublisher(List<Shop> shops, String product, int maxConcurrency, Executor executor) {
+		this(shops, product, maxConcurrency, (Shop shop) -> CompletableFuture.supplyAsync(() -> shop.getPrice(product), executor));
+	}
+
+	private QuotePublisher(List<Shop> shops, String product, int maxConcurrency,
+			Function<Shop, CompletableFuture<Double>> priceSource) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+		}
+		this.shops = new ArrayList<>(shops);
+		this.product = product;
+		this.maxConcurrency = maxConcurrency;
+		this.priceSource = priceSource;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super Quote> subscriber) {
+		Objects.requireNonNull(subscriber);
+		subscriber.onSubscribe(new QuoteSubscription(subscriber));
+	}
+
+	private final class QuoteSubscription implements Subscription {
+
+		private final Subscriber<? super Quote> subscriber;
+		private final Queue<Quote> ready = new ConcurrentLinkedQueue<>();
+		private final Set<CompletableFuture<Double>> inFlight = ConcurrentHashMap.newKeySet();
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+		// Quotes requested to the shops or waiting in the ready queue.
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile boolean started;
+		private volatile Throwable invalidRequest;
+
+		// Only accessed by the drain loop.
+		private int nextShop;
+		private boolean done;
+
+		private QuoteSubscription(Subscriber<? super Quote> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) { // Rule 3.9 of the specification.
+				invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+			} else {
+				requested.accumulateAndGet(n, (current, added) -> {
+					long sum = current + added;
+					return sum < 0 ? Long.MAX_VALUE : sum; // Unbounded demand.
+				});
+				started = true;
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			drain();
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				if (done) {
+					return;
+				}
+				if (invalidRequest != null) {
+					cancelled = true;
+					done = true;
+					cancelPending();
+					subscriber.onError(invalidRequest);
+					return;
+				}
+				if (cancelled) {
+					done = true;
+					cancelPending();
+					return;
+				}
+
+				boolean progress = true;
+				while (progress && !cancelled) {
+					progress = false;
+					while (started && nextShop < shops.size() && pending.get() < maxConcurrency) {
+						query(shops.get(nextShop++));
+						progress = true;
+					}
+					long demand = requested.get();
+					long emitted = 0;
+					Quote quote;
+					while (emitted < demand && !cancelled && (quote = ready.poll()) != null) {
+						pending.decrementAndGet();
+						subscriber.onNext(quote);
+						emitted++;
+					}
+					if (emitted > 0) {
+						progress = true;
+						if (demand != Long.MAX_VALUE) {
+							requested.addAndGet(-emitted);
+						}
+					}
+				}
+
+				if (!cancelled && nextShop == shops.size() && pending.get() == 0) {
+					done = true;
+					subscriber.onComplete();
+					return;
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void query(Shop shop) {
+			pending.incrementAndGet();
+			CompletableFuture<Double> price = priceSource.apply(shop);
+			inFlight.add(price);
+			price.whenComplete((value, e) -> {
+				inFlight.remove(price);
+				if (e == null) {
+					ready.offer(new Quote(shop.getShopName(), product, value));
+				} else {
+					pending.decrementAndGet();
+					if (!cancelled) {
+						logger.warn("{} didn't answer: {}", shop.getShopName(), e.toString());
+					}
+				}
+				drain();
+			});
+		}
+
+		private void cancelPending() {
+			for (CompletableFuture<Double> price : inFlight) {
+				price.cancel(false);
+			}
+			ready.clear();
+		}
+
+	}
+
+}
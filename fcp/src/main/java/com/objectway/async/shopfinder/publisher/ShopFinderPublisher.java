@@ -0,0 +1,82 @@
+package com.objectway.async.shopfinder.publisher;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.ShopFinderModelComparison;
+import com.objectway.async.shopfinder.model.Quote;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Shops answering between 0.5 and 5 seconds: the list returned by findPricesNonBlocking() arrives
+ * with the slowest shop, the QuotePublisher delivers the first quote with the fastest one.
+ * The subscriber requests one quote at a time and cancels the subscription after the best 5 answers.
+ */
+public class ShopFinderPublisher {
+	
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderPublisher.class.getName());
+	
+	private static final String PRODUCT = "AMD Ryzen Threadripper 3990WX";
+	
+	public static void main(String[] args) throws InterruptedException {
+		Random random = new Random(42);
+		List<Shop> shopList = IntStream.range(0, 20)
+				.mapToObj(i -> new Shop("Shop " + i, 500 + random.nextInt(4_500)))
+				.collect(Collectors.toList());
+		
+		long start = System.currentTimeMillis();
+		List<String> prices = ShopFinderModelComparison.findPricesNonBlocking(shopList, PRODUCT);
+		logger.info("findPricesNonBlocking(): {} prices, the first one after {} secs.", prices.size(), 
+				(System.currentTimeMillis() - start) / 1000f);
+		
+		CountDownLatch finished = new CountDownLatch(1);
+		long publisherStart = System.currentTimeMillis();
+		new QuotePublisher(shopList, PRODUCT, 8).subscribe(new Subscriber<Quote>() {
+			
+			private Subscription subscription;
+			private int received;
+			
+			@Override
+			public void onSubscribe(Subscription subscription) {
+				this.subscription = subscription;
+				subscription.request(1);
+			}
+			
+			@Override
+			public void onNext(Quote quote) {
+				logger.info("After {} secs: {}", (System.currentTimeMillis() - publisherStart) / 1000f, quote);
+				if (++received == 5) {
+					logger.info("Enough quotes, cancelling.");
+					subscription.cancel();
+					finished.countDown();
+				} else {
+					subscription.request(1);
+				}
+			}
+			
+			@Override
+			public void onError(Throwable e) {
+				logger.error("Quotes failed", e);
+				finished.countDown();
+			}
+			
+			@Override
+			public void onComplete() {
+				logger.info("All the shops answered.");
+				finished.countDown();
+			}
+		});
+		finished.await();
+	}
+
+}
@@ -13,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.objectway.model.Dish;
+import com.objectway.parallel.PrimeSieve;
 import com.objectway.streams.exercises.helpers.MenuCreator;
 
 /**
@@ -57,21 +58,44 @@ public class CollectingWithPartitioning {
         						Collectors.maxBy(Comparator.comparingInt(Dish::getCalories)), Optional::get)
         				));
         
-		partitionPrimes(Long.MAX_VALUE);
+		logger.info("Primes up to 100: {}", partitionPrimes(100).get(true));
 
+		long n = 2_000_000;
+		long start = System.nanoTime();
+		int primes = partitionPrimes(n).get(true).size();
+		logger.info("partitioningBy(isPrime): {} primes up to {} in {} ms.", primes, n, (System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		primes = partitionPrimesWithCustomCollector(n).get(true).size();
+		logger.info("PrimeNumbersCollector: {} primes up to {} in {} ms.", primes, n, (System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		primes = PrimeNumbersCollector.partition(LongStream.rangeClosed(2, n)).getPrimeCount();
+		logger.info("PrimeNumbersCollector without boxing: {} primes up to {} in {} ms.", primes, n, (System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		long count = PrimeSieve.count(n);
+		logger.info("Parallel segmented sieve: {} primes up to {} in {} ms.", count, n, (System.nanoTime() - start) / 1_000_000);
 	}
 
 	public static Map<Boolean, List<Long>> partitionPrimes(long n) {
-		return LongStream.rangeClosed(2, n).boxed().collect(Collectors.partitioningBy(candidate -> {
-			boolean test = isPrime(candidate);
-			if (test)
-				System.out.println("Got it: " + candidate);
-			return test;
-		}));
+		return LongStream.rangeClosed(2, n).boxed().collect(Collectors.partitioningBy(CollectingWithPartitioning::isPrime));
+	}
+
+	/**
+	 * Tests the candidates only against the primes already found up to their square root.
+	 */
+	public static Map<Boolean, List<Long>> partitionPrimesWithCustomCollector(long n) {
+		return LongStream.rangeClosed(2, n).boxed().collect(new PrimeNumbersCollector());
 	}
 
+	/**
+	 * A divisor greater than the square root of the candidate implies another one smaller than it:
+	 * the divisors are tested up to the square root only.
+	 */
 	public static boolean isPrime(long candidate) {
-		return LongStream.range(2, candidate).noneMatch(i -> candidate % i == 0);
+		long root = (long) Math.sqrt((double) candidate);
+		return candidate >= 2 && LongStream.rangeClosed(2, root).noneMatch(i -> candidate % i == 0);
 	}
 
 }
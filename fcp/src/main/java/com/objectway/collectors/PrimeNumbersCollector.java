@@ -0,0 +1,186 @@
+package com.objectway.collectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.LongStream;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Partitions the integers from 2 to n into primes and composites, like
+ * Collectors.partitioningBy(CollectingWithPartitioning::isPrime) does, but a candidate is tested only
+ * against the primes already found up to its square root, instead of against every smaller number.
+ *
+ * The candidates must be the consecutive integers starting from 2, in ascending order
+ * (e.g. LongStream.rangeClosed(2, n)): the test relies on every smaller prime having been collected.
+ *
+ * The numbers are kept in long[] arrays, not in List<Long>: partition(LongStream) uses them
+ * without boxing any candidate, the Collector boxes only the final lists.
+ *
+ * In a parallel stream a container starting from x doesn't know the primes below x, so its "primes"
+ * may contain composites whose factors are all below x. The combiner tests the "primes" of the right
+ * container against the primes of the left one: when the container starting from 2 is merged, the
+ * partition is exact. This costs more than the sequential collection, for big ranges see PrimeSieve.
+ *
+ * @see com.objectway.collectors.CollectingWithPartitioning
+ * @see com.objectway.parallel.PrimeSieve
+ */
+public class PrimeNumbersCollector implements Collector<Long, PrimeNumbersCollector.Partition, Map<Boolean, List<Long>>> {
+
+	/**
+	 * Partitions the candidates without boxing them.
+	 */
+	public static Partition partition(LongStream candidates) {
+		return candidates.collect(Partition::new, Partition::accept, Partition::combine);
+	}
+
+	@Override
+	public Supplier<Partition> supplier() {
+		return Partition::new;
+	}
+
+	@Override
+	public BiConsumer<Partition, Long> accumulator() {
+		return Partition::accept;
+	}
+
+	@Override
+	public BinaryOperator<Partition> combiner() {
+		return (left, right) -> {
+			left.combine(right);
+			return left;
+		};
+	}
+
+	@Override
+	public Function<Partition, Map<Boolean, List<Long>>> finisher() {
+		return Partition::toMap;
+	}
+
+	@Override
+	public Set<Characteristics> characteristics() {
+		return Collections.emptySet();
+	}
+
+	/**
+	 * The container: the primes and the composites collected so far, in ascending order.
+	 */
+	public static class Partition {
+
+		private long[] primes = new long[16];
+		private int primeCount;
+		private long[] composites = new long[16];
+		private int compositeCount;
+
+		public void accept(long candidate) {
+			if (isPrime(candidate)) {
+				primes = append(primes, primeCount++, candidate);
+			} else {
+				composites = append(composites, compositeCount++, candidate);
+			}
+		}
+
+		/**
+		 * Adds the numbers of a container coming right after this one.
+		 */
+		public void combine(Partition right) {
+			// The right "primes" found to be composites, and the right composites, are both sorted: merge them.
+			long[] rightComposites = new long[right.compositeCount + right.primeCount];
+			int i = 0;
+			int merged = 0;
+			int leftPrimes = primeCount;
+			for (int k = 0; k < right.primeCount; k++) {
+				long candidate = right.primes[k];
+				if (isPrime(candidate, leftPrimes)) {
+					primes = append(primes, primeCount++, candidate);
+				} else {
+					while (i < right.compositeCount && right.composites[i] < candidate) {
+						rightComposites[merged++] = right.composites[i++];
+					}
+					rightComposites[merged++] = candidate;
+				}
+			}
+			while (i < right.compositeCount) {
+				rightComposites[merged++] = right.composites[i++];
+			}
+			for (int k = 0; k < merged; k++) {
+				composites = append(composites, compositeCount++, rightComposites[k]);
+			}
+		}
+
+		public int getPrimeCount() {
+			return primeCount;
+		}
+
+		public int getCompositeCount() {
+			return compositeCount;
+		}
+
+		public LongStream primes() {
+			return Arrays.stream(primes, 0, primeCount);
+		}
+
+		public LongStream composites() {
+			return Arrays.stream(composites, 0, compositeCount);
+		}
+
+		/**
+		 * The same Map returned by Collectors.partitioningBy().
+		 */
+		public Map<Boolean, List<Long>> toMap() {
+			Map<Boolean, List<Long>> map = new HashMap<>();
+			map.put(true, box(primes, primeCount));
+			map.put(false, box(composites, compositeCount));
+			return map;
+		}
+
+		private boolean isPrime(long candidate) {
+			return isPrime(candidate, primeCount);
+		}
+
+		// Tests the candidate against the first known primes, up to its square root.
+		private boolean isPrime(long candidate, int known) {
+			if (candidate < 2) {
+				return false;
+			}
+			for (int k = 0; k < known; k++) {
+				long p = primes[k];
+				if (p > candidate / p) {
+					break;
+				}
+				if (candidate % p == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static long[] append(long[] array, int index, long value) {
+			if (index == array.length) {
+				array = Arrays.copyOf(array, array.length * 2);
+			}
+			array[index] = value;
+			return array;
+		}
+
+		private static List<Long> box(long[] array, int count) {
+			List<Long> list = new ArrayList<>(count);
+			for (int k = 0; k < count; k++) {
+				list.add(array[k]);
+			}
+			return list;
+		}
+
+	}
+
+}
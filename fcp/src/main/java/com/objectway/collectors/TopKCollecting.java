@@ -0,0 +1,57 @@
+package com.objectway.collectors;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.model.Dish;
+import com.objectway.streams.exercises.helpers.MenuCreator;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The top K query of StreamIntro on a big menu: sorted().limit(k) sorts all the dishes (in parallel 
+ * too, the whole stream is buffered and sorted before limit() is applied), TopKCollector keeps a 
+ * bounded heap per thread and merges them.
+ * 
+ * @see com.objectway.streams.StreamIntro
+ */
+public class TopKCollecting {
+	
+	private static final Logger logger = LoggerFactory.getLogger(TopKCollecting.class.getName());
+	
+	private static final int K = 5;
+	
+	public static void main(String[] args) {
+		List<Dish> menu = MenuCreator.getMenu(2_000_000);
+		Comparator<Dish> byCalories = Comparator.comparingInt(Dish::getCalories);
+		
+		measure("Sequential sorted().limit()", () -> menu.stream().sorted(byCalories).limit(K).collect(toList()));
+		measure("Parallel sorted().limit()", () -> menu.parallelStream().sorted(byCalories).limit(K).collect(toList()));
+		measure("Sequential TopKCollector with a Comparator", () -> menu.stream().collect(TopKCollector.smallest(K, byCalories)));
+		measure("Parallel TopKCollector with a Comparator", () -> menu.parallelStream().collect(TopKCollector.smallest(K, byCalories)));
+		measure("Parallel TopKCollector with an int key", 
+				() -> menu.parallelStream().collect(TopKCollector.smallestByInt(K, Dish::getCalories)));
+		measure("Parallel TopKCollector, largest int key", 
+				() -> menu.parallelStream().collect(TopKCollector.largestByInt(K, Dish::getCalories)));
+	}
+	
+	// Runs the query a few times and logs the fastest run.
+	private static void measure(String msg, Supplier<List<Dish>> query) {
+		long fastest = Long.MAX_VALUE;
+		List<Dish> result = null;
+		for (int i = 0; i < 10; i++) {
+			long start = System.nanoTime();
+			result = query.get();
+			fastest = Math.min(fastest, System.nanoTime() - start);
+		}
+		List<Integer> calories = result.stream().map(Dish::getCalories).collect(toList());
+		logger.info("{}: calories {} in {} ms.", msg, calories, fastest / 1_000_000);
+	}
+	
+}
@@ -0,0 +1,338 @@
+package com.objectway.collectors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Collects the K best elements of a stream, the same result of sorted(comparator).limit(k), without
+ * sorting the whole stream. Every container is a heap bounded to K elements whose root is the worst
+ * element kept: a new element enters only if it's better than the root, so the whole stream costs
+ * O(N log K) time and O(K) memory instead of O(N log N) time and O(N) memory.
+ *
+ * In a parallel stream every thread fills its own heap and the combiner merges two heaps by offering
+ * the elements of the smaller one to the bigger one. The result is sorted from the best element.
+ *
+ * The primitive key versions (smallestByInt(), largestByLong(), ...) extract the key once per element
+ * and keep it in a long[] next to the element: the heap compares primitives instead of calling a
+ * Comparator, which usually unboxes or extracts the keys at every comparison.
+ *
+ * The collector is UNORDERED: when more elements have the same key, which of them are kept is unspecified.
+ *
+ * Usage: menu.parallelStream().collect(TopKCollector.smallestByInt(3, Dish::getCalories))
+ */
+public class TopKCollector<T> implements Collector<T, TopKCollector.Heap<T>, List<T>> {
+
+	private final Supplier<Heap<T>> supplier;
+
+	private TopKCollector(Supplier<Heap<T>> supplier) {
+		this.supplier = supplier;
+	}
+
+	/**
+	 * The k smallest elements according to the comparator, from the smallest.
+	 */
+	public static <T> TopKCollector<T> smallest(int k, Comparator<? super T> comparator) {
+		checkK(k);
+		Objects.requireNonNull(comparator);
+		return new TopKCollector<>(() -> new ComparatorHeap<>(k, comparator));
+	}
+
+	/**
+	 * The k largest elements according to the comparator, from the largest.
+	 */
+	public static <T> TopKCollector<T> largest(int k, Comparator<? super T> comparator) {
+		Objects.requireNonNull(comparator);
+		return smallest(k, Collections.reverseOrder(comparator));
+	}
+
+	/**
+	 * The k elements with the smallest int key, from the smallest.
+	 */
+	public static <T> TopKCollector<T> smallestByInt(int k, ToIntFunction<? super T> key) {
+		Objects.requireNonNull(key);
+		return smallestByLong(k, t -> key.applyAsInt(t));
+	}
+
+	/**
+	 * The k elements with the largest int key, from the largest.
+	 */
+	public static <T> TopKCollector<T> largestByInt(int k, ToIntFunction<? super T> key) {
+		Objects.requireNonNull(key);
+		return largestByLong(k, t -> key.applyAsInt(t));
+	}
+
+	/**
+	 * The k elements with the smallest long key, from the smallest.
+	 */
+	public static <T> TopKCollector<T> smallestByLong(int k, ToLongFunction<? super T> key) {
+		checkK(k);
+		Objects.requireNonNull(key);
+		return new TopKCollector<>(() -> new LongKeyHeap<>(k, key, false));
+	}
+
+	/**
+	 * The k elements with the largest long key, from the largest.
+	 */
+	public static <T> TopKCollector<T> largestByLong(int k, ToLongFunction<? super T> key) {
+		checkK(k);
+		Objects.requireNonNull(key);
+		return new TopKCollector<>(() -> new LongKeyHeap<>(k, key, true));
+	}
+
+	private static void checkK(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("K must not be negative: " + k);
+		}
+	}
+
+	@Override
+	public Supplier<Heap<T>> supplier() {
+		return supplier;
+	}
+
+	@Override
+	public BiConsumer<Heap<T>, T> accumulator() {
+		return Heap::offer;
+	}
+
+	@Override
+	public BinaryOperator<Heap<T>> combiner() {
+		return Heap::merge;
+	}
+
+	@Override
+	public Function<Heap<T>, List<T>> finisher() {
+		return Heap::toSortedList;
+	}
+
+	@Override
+	public Set<Characteristics> characteristics() {
+		return Collections.unmodifiableSet(EnumSet.of(Characteristics.UNORDERED));
+	}
+
+	/**
+	 * The container of the collector: a heap of at most K elements, the worst one at the root.
+	 */
+	public abstract static class Heap<T> {
+
+		protected final int k;
+		protected final Object[] elements;
+		protected int size;
+
+		private Heap(int k) {
+			this.k = k;
+			this.elements = new Object[k];
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public abstract void offer(T element);
+
+		/**
+		 * Moves the elements of the smaller heap into the bigger one and returns the latter.
+		 */
+		public Heap<T> merge(Heap<T> other) {
+			Heap<T> target = size >= other.size ? this : other;
+			Heap<T> source = target == this ? other : this;
+			for (int i = 0; i < source.size; i++) {
+				target.offerFrom(source, i);
+			}
+			return target;
+		}
+
+		/**
+		 * Empties the heap and returns its elements, from the best one.
+		 */
+		@SuppressWarnings("unchecked")
+		public List<T> toSortedList() {
+			Object[] sorted = new Object[size];
+			// Heap sort: the root is the worst element, so it's moved to the end of the result.
+			for (int i = size - 1; i >= 0; i--) {
+				sorted[i] = elements[0];
+				removeRoot();
+			}
+			return new ArrayList<>((List<T>) Arrays.asList(sorted));
+		}
+
+		// Offers the i-th element of another heap of the same kind, without recomputing its key.
+		protected abstract void offerFrom(Heap<T> other, int i);
+
+		protected abstract void removeRoot();
+
+	}
+
+	/*
+	 * Elements compared with a Comparator: the root is the greatest one.
+	 */
+	private static final class ComparatorHeap<T> extends Heap<T> {
+
+		private final Comparator<? super T> comparator;
+
+		private ComparatorHeap(int k, Comparator<? super T> comparator) {
+			super(k);
+			this.comparator = comparator;
+		}
+
+		@Override
+		public void offer(T element) {
+			if (size < k) {
+				siftUp(size++, element);
+			} else if (k > 0 && comparator.compare(element, element(0)) < 0) {
+				siftDown(0, element);
+			}
+		}
+
+		@Override
+		protected void offerFrom(Heap<T> other, int i) {
+			offer(((ComparatorHeap<T>) other).element(i));
+		}
+
+		@Override
+		protected void removeRoot() {
+			T last = element(--size);
+			elements[size] = null;
+			if (size > 0) {
+				siftDown(0, last);
+			}
+		}
+
+		private void siftUp(int i, T element) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (comparator.compare(element, element(parent)) <= 0) {
+					break;
+				}
+				elements[i] = elements[parent];
+				i = parent;
+			}
+			elements[i] = element;
+		}
+
+		private void siftDown(int i, T element) {
+			int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				int right = child + 1;
+				if (right < size && comparator.compare(element(right), element(child)) > 0) {
+					child = right;
+				}
+				if (comparator.compare(element, element(child)) >= 0) {
+					break;
+				}
+				elements[i] = elements[child];
+				i = child;
+			}
+			elements[i] = element;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T element(int i) {
+			return (T) elements[i];
+		}
+
+	}
+
+	/*
+	 * Elements with a primitive key, stored in a parallel long[]: the root has the greatest key
+	 * (the smallest one when looking for the largest keys).
+	 */
+	private static final class LongKeyHeap<T> extends Heap<T> {
+
+		private final ToLongFunction<? super T> key;
+		private final boolean largest;
+		private final long[] keys;
+
+		private LongKeyHeap(int k, ToLongFunction<? super T> key, boolean largest) {
+			super(k);
+			this.key = key;
+			this.largest = largest;
+			this.keys = new long[k];
+		}
+
+		@Override
+		public void offer(T element) {
+			offer(key.applyAsLong(element), element);
+		}
+
+		@Override
+		protected void offerFrom(Heap<T> other, int i) {
+			offer(((LongKeyHeap<T>) other).keys[i], other.elements[i]);
+		}
+
+		private void offer(long elementKey, Object element) {
+			if (size < k) {
+				siftUp(size++, elementKey, element);
+			} else if (k > 0 && worse(keys[0], elementKey)) {
+				siftDown(0, elementKey, element);
+			}
+		}
+
+		@Override
+		protected void removeRoot() {
+			size--;
+			long lastKey = keys[size];
+			Object last = elements[size];
+			elements[size] = null;
+			if (size > 0) {
+				siftDown(0, lastKey, last);
+			}
+		}
+
+		// True if a key is worse than another one, that is it must stay nearer to the root.
+		private boolean worse(long a, long b) {
+			return largest ? a < b : a > b;
+		}
+
+		private void siftUp(int i, long elementKey, Object element) {
+			while (i > 0) {
+				int parent = (i - 1) >>> 1;
+				if (!worse(elementKey, keys[parent])) {
+					break;
+				}
+				keys[i] = keys[parent];
+				elements[i] = elements[parent];
+				i = parent;
+			}
+			keys[i] = elementKey;
+			elements[i] = element;
+		}
+
+		private void siftDown(int i, long elementKey, Object element) {
+			int half = size >>> 1;
+			while (i < half) {
+				int child = 2 * i + 1;
+				int right = child + 1;
+				if (right < size && worse(keys[right], keys[child])) {
+					child = right;
+				}
+				if (!worse(keys[child], elementKey)) {
+					break;
+				}
+				keys[i] = keys[child];
+				elements[i] = elements[child];
+				i = child;
+			}
+			keys[i] = elementKey;
+			elements[i] = element;
+		}
+
+	}
+
+}
@@ -0,0 +1,51 @@
+package com.objectway.collectors;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import com.objectway.model.MutableWordCounter;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Counts the words of a Stream<Character> with a mutable container instead of reducing immutable
+ * WordCounter objects. Every thread of a parallel stream fills its own MutableWordCounter and the
+ * containers are merged by the combiner, which takes care of words crossing two containers.
+ * 
+ * The order of the chars matters, so the collector is neither UNORDERED nor CONCURRENT.
+ * For an IntStream of chars, the same container is used directly with
+ * IntStream.collect(MutableWordCounter::new, MutableWordCounter::accumulate, MutableWordCounter::combine).
+ */
+public class WordCountCollector implements Collector<Character, MutableWordCounter, Integer> {
+
+	@Override
+	public Supplier<MutableWordCounter> supplier() {
+		return MutableWordCounter::new;
+	}
+
+	@Override
+	public BiConsumer<MutableWordCounter, Character> accumulator() {
+		return MutableWordCounter::accumulate;
+	}
+
+	@Override
+	public BinaryOperator<MutableWordCounter> combiner() {
+		return MutableWordCounter::combine;
+	}
+
+	@Override
+	public Function<MutableWordCounter, Integer> finisher() {
+		return MutableWordCounter::getCounter;
+	}
+
+	@Override
+	public Set<Characteristics> characteristics() {
+		return Collections.emptySet();
+	}
+
+}
@@ -6,6 +6,8 @@ package com.objectway.model;
  * A simple bean that maintains state. This state is modified concurrently by some
  * parallel code and produces side effects. Used to show problems with bad concurrent code.
  * Kept simple on purpose.
+ * 
+ * @see com.objectway.parallel.accumulators.ConcurrentAccumulator for thread-safe alternatives.
  */
 public class Accumulator {
 	
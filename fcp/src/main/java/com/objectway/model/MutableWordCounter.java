@@ -0,0 +1,66 @@
+package com.objectway.model;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The mutable counterpart of WordCounter, to be used as the container of a mutable reduction
+ * (Stream.collect() / IntStream.collect()). WordCounter.accumulate() creates a new object at every
+ * word boundary: here the same container is updated in place, so counting words creates no garbage
+ * for each char.
+ * 
+ * Besides the counter, the container remembers whether its first char was a whitespace
+ * (leadingSpace) and whether its last one was (lastSpace). When two containers are combined
+ * and a word goes across them, that word is counted once: the text can be split anywhere,
+ * not only on whitespaces.
+ * 
+ * @see com.objectway.model.WordCounter
+ * @see com.objectway.collectors.WordCountCollector
+ */
+public class MutableWordCounter {
+	
+	private int counter = 0;
+	private boolean leadingSpace = false;
+	private boolean lastSpace = true;
+	private boolean empty = true;
+	
+	public void accumulate(int c) {
+		boolean space = Character.isWhitespace(c);
+		if (empty) {
+			leadingSpace = space;
+			empty = false;
+		}
+		if (space) {
+			lastSpace = true;
+		} else if (lastSpace) {
+			counter++;
+			lastSpace = false;
+		}
+	}
+	
+	public void accumulate(Character c) {
+		accumulate(c.charValue());
+	}
+	
+	// The other container holds the chars coming right after the chars of this one.
+	public MutableWordCounter combine(MutableWordCounter other) {
+		if (other.empty) {
+			return this;
+		}
+		if (empty) {
+			leadingSpace = other.leadingSpace;
+			empty = false;
+		}
+		else if (!lastSpace && !other.leadingSpace) {
+			// A word crossing the boundary has been counted on both sides.
+			counter--;
+		}
+		counter += other.counter;
+		lastSpace = other.lastSpace;
+		return this;
+	}
+	
+	public int getCounter() {
+		return counter;
+	}
+	
+}
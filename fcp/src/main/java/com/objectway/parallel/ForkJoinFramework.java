@@ -8,6 +8,8 @@ import java.util.stream.LongStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.objectway.parallel.diagnostics.WorkStealingRecorder;
+
 /**
  * @author Renato Perini <renato.perini@objectway.com>
  * 
@@ -23,6 +25,13 @@ import org.slf4j.LoggerFactory;
  *                           [...]
  *                    [...]         [...]
  *                [...]   [...] [...]  [...]
+ * 
+ * The fixed THRESHOLD is the classic approach, but it's tuned for a single machine. A SplitThreshold
+ * can be passed to the constructor to size the leaves on the pool parallelism or on a calibration run.
+ * The chosen threshold and the number of tasks created by the run are read from the SplitThreshold.
+ * A WorkStealingRecorder can be passed too, to see how many tasks are stolen and how long the leaves take.
+ * 
+ * @see com.objectway.parallel.SplitThreshold
  * @see java.util.concurrent.ExecutorService
  * @see java.util.concurrent.RecursiveTask<V>
  * @see java.util.concurrent.RecursiveAction
@@ -43,18 +52,39 @@ public class ForkJoinFramework extends RecursiveTask<Long> {
 	// This is the size of the array under which this task won't be split further.
 	public static final long THRESHOLD = 10_000; 
 	
+	// Decides when to stop splitting. Shared by all the tasks of the same run.
+	private final SplitThreshold splitThreshold;
+	
+	// Records forks, steals and leaf durations. Shared by all the tasks of the same run.
+	private final WorkStealingRecorder recorder;
+	
+	// The thread that created (and forked) this task. Null for the root task.
+	private final Thread forker;
+	
 	// Constructos.
 	public ForkJoinFramework(long[] numbers) {
-		this(numbers, 0, numbers.length);
+		this(numbers, SplitThreshold.fixed((int) THRESHOLD));
+	}
+	
+	public ForkJoinFramework(long[] numbers, SplitThreshold splitThreshold) {
+		this(numbers, splitThreshold, WorkStealingRecorder.DISABLED);
 	}
 	
-	/* Only usable from the main public constructor. It initializes the class with appropriate
+	public ForkJoinFramework(long[] numbers, SplitThreshold splitThreshold, WorkStealingRecorder recorder) {
+		this(numbers, 0, numbers.length, splitThreshold, recorder, null);
+	}
+	
+	/* Only usable from the main public constructors. It initializes the class with appropriate
 	 * ranges.
 	 */
-	private ForkJoinFramework(long[] numbers, int start, int end) {
+	private ForkJoinFramework(long[] numbers, int start, int end, SplitThreshold splitThreshold, 
+			WorkStealingRecorder recorder, Thread forker) {
 		this.numbers = numbers;
 		this.start = start;
 		this.end = end;
+		this.splitThreshold = splitThreshold;
+		this.recorder = recorder;
+		this.forker = forker;
 	}
 
 	/**
@@ -65,19 +95,26 @@ public class ForkJoinFramework extends RecursiveTask<Long> {
 	 */
 	@Override
 	protected Long compute() {
+		recorder.started(forker);
 		int length = end - start;
-		if (length <= THRESHOLD) { // If the task is small enough or it's not possible to split further ...
-			return computeSequentially();
+		if (!splitThreshold.split(length)) { // If the task is small enough or it's not possible to split further ...
+			long leafStart = recorder.leafStarted();
+			long result = computeSequentially();
+			recorder.leafCompleted(leafStart);
+			return result;
 		}
 		
 		// Split left to the first half.
-		ForkJoinFramework leftTask = new ForkJoinFramework(numbers, start, start + length / 2);
+		ForkJoinFramework leftTask = new ForkJoinFramework(numbers, start, start + length / 2, splitThreshold, 
+				recorder, Thread.currentThread());
 		
 		// Asynchronously execute the task in another thread of the ForkJoinPool.
+		recorder.forked();
 		leftTask.fork();
 		
 		// Split right to the other half.
-		ForkJoinFramework rightTask = new ForkJoinFramework(numbers, start + length / 2, end);
+		ForkJoinFramework rightTask = new ForkJoinFramework(numbers, start + length / 2, end, splitThreshold, 
+				recorder, Thread.currentThread());
 		
 		// Executes this task synchrounously potentially creating a new split.
 		Long rightResult = rightTask.compute();
@@ -91,6 +128,10 @@ public class ForkJoinFramework extends RecursiveTask<Long> {
 	
 	// Sequential reduction of split chunks.
 	private long computeSequentially() {
+		return sumRange(numbers, start, end);
+	}
+	
+	private static long sumRange(long[] numbers, int start, int end) {
 		long sum = 0;
 		for (int i = start; i < end; i++) {
 			sum += numbers[i];
@@ -98,6 +139,10 @@ public class ForkJoinFramework extends RecursiveTask<Long> {
 		return sum;
 	}
 	
+	public SplitThreshold getSplitThreshold() {
+		return splitThreshold;
+	}
+	
 	public static void main(String[] args) {
 		
 		// Let's initialize our big array containing long numbers.
@@ -116,6 +161,19 @@ public class ForkJoinFramework extends RecursiveTask<Long> {
 		
 		// Yoo-hoo. Here is the result, ladies and gentlemen.
 		logger.info("Result: {} computed in {} ms.", result, end - start);
+		
+		// The same computation with adaptive thresholds: sized on the pool parallelism or on a calibration run.
+		int parallelism = threadPool.getParallelism();
+		runWith(threadPool, numbers, SplitThreshold.fixed((int) THRESHOLD));
+		runWith(threadPool, numbers, SplitThreshold.forParallelism(numbers.length, parallelism));
+		runWith(threadPool, numbers, SplitThreshold.calibrated(numbers.length, parallelism, n -> sumRange(numbers, 0, n)));
+	}
+	
+	private static void runWith(ForkJoinPool threadPool, long[] numbers, SplitThreshold splitThreshold) {
+		long start = System.nanoTime();
+		long result = threadPool.invoke(new ForkJoinFramework(numbers, splitThreshold));
+		long end = System.nanoTime();
+		logger.info("Result: {} computed in {} ms with {}.", result, (end - start) / 1_000_000, splitThreshold);
 	}
 	
 }
@@ -0,0 +1,384 @@
+package com.objectway.parallel;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * A ForkJoinPool with a name and its own parallelism cap, to isolate heavy parallel work from the
+ * JVM-wide common pool. Every .parallel() stream runs by default in ForkJoinPool.commonPool(), whose
+ * size can only be changed for the whole JVM with the system property
+ * java.util.concurrent.ForkJoinPool.common.parallelism: one heavy report can starve every other request.
+ *
+ * A parallel stream (or a RecursiveTask) evaluated by a worker thread of a ForkJoinPool forks its
+ * subtasks in that pool, not in the common pool. So the pipeline is wrapped in a task and submitted
+ * to this pool: every split of the stream, and every nested parallel operation started by the
+ * pipeline, stays inside it. A pipeline invoked from a worker of the same pool is run directly by
+ * the calling worker, so nested invocations don't block a worker waiting for another one.
+ *
+ * What escapes the pool: work explicitly submitted to the common pool, like CompletableFuture.supplyAsync()
+ * without an executor or a call to ForkJoinPool.commonPool().
+ *
+ * Worker threads are named "<pool name>-worker-<n>", so they can be recognized in thread dumps.
+ * Pools are registered by name until they are closed: see named() and pools().
+ */
+public final class NamedForkJoinPool implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(NamedForkJoinPool.class.getName());
+
+	private static final ConcurrentMap<String, NamedForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+	private final String name;
+	private final ForkJoinPool pool;
+	private final AtomicInteger workerNumber = new AtomicInteger();
+
+	// Statistics.
+	private final LongAdder runs = new LongAdder();
+	private final LongAdder nestedRuns = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final LongAccumulator peakActiveThreads = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Creates and registers a pool.
+	 * @param name - The name of the pool, unique among the open pools.
+	 * @param parallelism - The maximum number of threads running pipelines of this pool.
+	 * @throws IllegalStateException if an open pool with the same name already exists.
+	 */
+	public NamedForkJoinPool(String name, int parallelism) {
+		if (name == null || name.isEmpty()) {
+			throw new IllegalArgumentException("A pool must have a name");
+		}
+		this.name = name;
+		this.pool = new ForkJoinPool(parallelism, p -> new Worker(p, this), null, false);
+		if (POOLS.putIfAbsent(name, this) != null) {
+			pool.shutdown();
+			throw new IllegalStateException("A pool named " + name + " already exists");
+		}
+	}
+
+	/**
+	 * Returns the open pool with the given name, creating it with the given parallelism if it doesn't exist.
+	 */
+	public static NamedForkJoinPool named(String name, int parallelism) {
+		while (true) {
+			NamedForkJoinPool existing = POOLS.get(name);
+			if (existing != null) {
+				return existing;
+			}
+			try {
+				return new NamedForkJoinPool(name, parallelism);
+			} catch (IllegalStateException e) {
+				// Created by another thread in the meantime, and maybe already closed: look it up again.
+			}
+		}
+	}
+
+	/**
+	 * All the open pools.
+	 */
+	public static Collection<NamedForkJoinPool> pools() {
+		return Collections.unmodifiableCollection(POOLS.values());
+	}
+
+	/**
+	 * The pool running the current thread, or null if the current thread isn't a worker of a NamedForkJoinPool.
+	 */
+	public static NamedForkJoinPool current() {
+		Thread thread = Thread.currentThread();
+		return thread instanceof Worker ? ((Worker) thread).owner : null;
+	}
+
+	/**
+	 * Evaluates a stream pipeline (or any other computation) inside this pool.
+	 * For example: pool.invoke(() -> LongStream.rangeClosed(1, n).parallel().sum())
+	 * @param pipeline - The computation. Its parallel operations fork their tasks in this pool.
+	 * @return The result of the pipeline. A RuntimeException thrown by the pipeline is rethrown as it is.
+	 */
+	public <T> T invoke(Supplier<T> pipeline) {
+		return invoke(new PipelineTask<>(pipeline));
+	}
+
+	/**
+	 * Runs a stream pipeline without result (for example one ending with forEach()) inside this pool.
+	 */
+	public void run(Runnable pipeline) {
+		invoke(() -> {
+			pipeline.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Executes a fork/join task (for example a ForkJoinFramework) inside this pool.
+	 * @return The result of the task.
+	 */
+	public <T> T invoke(ForkJoinTask<T> task) {
+		boolean nested = current() == this;
+		long start = System.nanoTime();
+		try {
+			// From a worker of this pool invoke() runs the task in the calling worker, otherwise it's submitted.
+			return nested ? task.invoke() : pool.invoke(task);
+		} catch (RuntimeException | Error e) {
+			failures.increment();
+			throw e;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			if (nested) {
+				nestedRuns.increment();
+			} else {
+				runs.increment();
+				totalNanos.add(elapsed);
+				maxNanos.accumulate(elapsed);
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * The underlying ForkJoinPool, e.g. to be used as the Executor of CompletableFutures.
+	 */
+	public ForkJoinPool getPool() {
+		return pool;
+	}
+
+	/**
+	 * A snapshot of the statistics of this pool.
+	 */
+	public Statistics getStatistics() {
+		return new Statistics(this);
+	}
+
+	/**
+	 * Unregisters the pool and shuts it down, waiting for the running pipelines to complete.
+	 */
+	@Override
+	public void close() {
+		POOLS.remove(name, this);
+		pool.shutdown();
+		try {
+			pool.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "NamedForkJoinPool[" + name + ", parallelism " + getParallelism() + "]";
+	}
+
+	/*
+	 * Wraps a pipeline, so that it's evaluated by a worker thread of the pool.
+	 */
+	private final class PipelineTask<T> extends ForkJoinTask<T> {
+
+		private static final long serialVersionUID = -3046417255813342781L;
+
+		private final Supplier<T> pipeline;
+		private T result;
+
+		private PipelineTask(Supplier<T> pipeline) {
+			this.pipeline = pipeline;
+		}
+
+		@Override
+		public T getRawResult() {
+			return result;
+		}
+
+		@Override
+		protected void setRawResult(T value) {
+			result = value;
+		}
+
+		@Override
+		protected boolean exec() {
+			peakActiveThreads.accumulate(pool.getActiveThreadCount());
+			result = pipeline.get();
+			return true;
+		}
+
+	}
+
+	/*
+	 * The worker threads of the pool: they're named after the pool and remember it, see current().
+	 */
+	private static final class Worker extends ForkJoinWorkerThread {
+
+		private final NamedForkJoinPool owner;
+
+		private Worker(ForkJoinPool pool, NamedForkJoinPool owner) {
+			super(pool);
+			this.owner = owner;
+			setName(owner.name + "-worker-" + owner.workerNumber.incrementAndGet());
+		}
+
+	}
+
+	/**
+	 * The statistics of a pool at a given moment.
+	 */
+	public static final class Statistics {
+
+		private final String name;
+		private final int parallelism;
+		private final long runs;
+		private final long nestedRuns;
+		private final long failures;
+		private final long totalNanos;
+		private final long maxNanos;
+		private final long peakActiveThreads;
+		private final long steals;
+		private final int poolSize;
+		private final int activeThreads;
+		private final long queuedTasks;
+
+		private Statistics(NamedForkJoinPool owner) {
+			this.name = owner.name;
+			this.parallelism = owner.pool.getParallelism();
+			this.runs = owner.runs.sum();
+			this.nestedRuns = owner.nestedRuns.sum();
+			this.failures = owner.failures.sum();
+			this.totalNanos = owner.totalNanos.sum();
+			this.maxNanos = owner.maxNanos.get();
+			this.peakActiveThreads = owner.peakActiveThreads.get();
+			this.steals = owner.pool.getStealCount();
+			this.poolSize = owner.pool.getPoolSize();
+			this.activeThreads = owner.pool.getActiveThreadCount();
+			this.queuedTasks = owner.pool.getQueuedTaskCount() + owner.pool.getQueuedSubmissionCount();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getParallelism() {
+			return parallelism;
+		}
+
+		// Pipelines and tasks submitted from outside the pool.
+		public long getRuns() {
+			return runs;
+		}
+
+		// Pipelines and tasks invoked by a worker of the pool itself.
+		public long getNestedRuns() {
+			return nestedRuns;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public long getAverageNanos() {
+			return runs == 0 ? 0 : totalNanos / runs;
+		}
+
+		public long getPeakActiveThreads() {
+			return peakActiveThreads;
+		}
+
+		public long getSteals() {
+			return steals;
+		}
+
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public int getActiveThreads() {
+			return activeThreads;
+		}
+
+		public long getQueuedTasks() {
+			return queuedTasks;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: parallelism %d, %d runs (%d nested, %d failed), average %.2f ms, max %.2f ms, "
+					+ "%d steals, %d threads (%d active, peak %d), %d queued tasks",
+					name, parallelism, runs, nestedRuns, failures, getAverageNanos() / 1e6, maxNanos / 1e6,
+					steals, poolSize, activeThreads, peakActiveThreads, queuedTasks);
+		}
+
+	}
+
+	/*
+	 * A heavy "report" runs in a pool of two threads while short "requests" keep being served by another
+	 * pool, and the nested parallel streams of the report never leave their pool.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		try (NamedForkJoinPool reports = new NamedForkJoinPool("reports", 2);
+				NamedForkJoinPool requests = new NamedForkJoinPool("requests", 2)) {
+
+			Set<String> reportThreads = ConcurrentHashMap.newKeySet();
+			Thread report = new Thread(() -> {
+				long sum = reports.invoke(() -> IntStream.range(0, 100).parallel()
+						.mapToLong(i -> {
+							reportThreads.add(Thread.currentThread().getName());
+							// A nested parallel stream: its tasks are forked in the same pool.
+							return reports.invoke(() -> IntStream.range(0, 16).parallel()
+									.mapToLong(j -> {
+										reportThreads.add(Thread.currentThread().getName());
+										return LongStream.rangeClosed(1, 200_000).map(n -> n * i + j).sum();
+									}).sum());
+						}).sum());
+				logger.info("Report: {}", sum);
+			});
+			report.start();
+
+			String text = "A good day is always represented by a functional programming session! ";
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < 10_000; i++) {
+				builder.append(text);
+			}
+			String document = builder.toString();
+			while (report.isAlive()) {
+				requests.invoke(() -> WordCount.functionalParallelWordCount(document));
+				requests.invoke(new ForkJoinFramework(LongStream.rangeClosed(1, 100_000).toArray()));
+			}
+			report.join();
+
+			logger.info("Threads used by the report: {}", reportThreads);
+			for (NamedForkJoinPool pool : pools()) {
+				logger.info("{}", pool.getStatistics());
+			}
+		}
+	}
+
+}
@@ -6,6 +6,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.objectway.model.Accumulator;
+import com.objectway.parallel.accumulators.CasAccumulator;
+import com.objectway.parallel.accumulators.ConcurrentAccumulator;
+import com.objectway.parallel.accumulators.StripedAccumulator;
+import com.objectway.parallel.accumulators.ThreadLocalAccumulator;
 
 /**
  * @author Renato Perini <renato.perini@objectway.com>
@@ -15,6 +19,11 @@ import com.objectway.model.Accumulator;
  * 
  * Hence, this parallel code is inherently broken, because sequential in nature. 
  * Don't use!!!
+ * 
+ * If a side-effecting sink is really needed, it must be thread-safe: see the ConcurrentAccumulator
+ * implementations, which always return the correct value.
+ * 
+ * @see com.objectway.parallel.accumulators.ConcurrentAccumulator
  */
 public class ParallelSumWithSideEffects {
 
@@ -24,6 +33,11 @@ public class ParallelSumWithSideEffects {
 		// Let's execute it 10 times, just to see what happens.
 		for (int i = 0; i < 10; i++) 
 			logger.info("Returned value: {}", sideEffectSum(10_000));
+		
+		// The same sum with thread-safe accumulators. Always 50005000.
+		logger.info("CAS accumulator: {}", sideEffectSum(10_000, new CasAccumulator()));
+		logger.info("Striped accumulator: {}", sideEffectSum(10_000, new StripedAccumulator()));
+		logger.info("Thread-local accumulator: {}", sideEffectSum(10_000, new ThreadLocalAccumulator()));
 	}
 	
 	public static long sideEffectSum(long n) {
@@ -34,5 +48,13 @@ public class ParallelSumWithSideEffects {
 		
 		return accumulator.total;
 	}
+	
+	public static long sideEffectSum(long n, ConcurrentAccumulator accumulator) {
+		LongStream.rangeClosed(1, n)
+			.parallel()
+			.forEach(accumulator::add);
+		
+		return accumulator.sum();
+	}
 
 }
@@ -0,0 +1,309 @@
+package com.objectway.parallel;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.parallel.kernels.RangeTask;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * A segmented sieve of Eratosthenes running the segments in parallel on the fork/join pool.
+ * CollectingWithPartitioning.isPrime() tests every candidate by trial division: the sieve instead
+ * crosses out the multiples of the primes up to sqrt(n), which costs O(n log log n) for all the numbers.
+ *
+ * Only odd numbers are stored, one bit each (bit i stands for 2i + 1 and it's set when the number is
+ * composite): a segment of SEGMENT_BITS bits covers about a million integers in 32 KB, so it stays in
+ * the cache of the core sieving it. Segments are independent, they only share the (small) array of
+ * the base primes up to sqrt(n), and they are split among the workers like the ranges of a RangeTask.
+ *
+ * There are two ways to use it:
+ *   1) count(n): every worker sieves its segments in a scratch array of a single segment and counts
+ *      the primes. Memory is bounded: the base primes plus one segment per leaf task.
+ *   2) sieve(n): the segments are sieved straight into a bit set of n / 16 bytes, that answers isPrime()
+ *      and streams the primes and the composites. 10^9 integers take 62.5 MB.
+ *
+ * Usage: java -cp ./exec/fcp.jar com.objectway.parallel.PrimeSieve [n]
+ *
+ * @see com.objectway.collectors.CollectingWithPartitioning
+ * @see com.objectway.collectors.PrimeNumbersCollector
+ */
+public final class PrimeSieve {
+
+	private static final Logger logger = LoggerFactory.getLogger(PrimeSieve.class.getName());
+
+	// Odd numbers per segment: 2^18 bits, 32 KB.
+	public static final int SEGMENT_BITS = 1 << 18;
+
+	// The biggest limit accepted by sieve(): its bits must fit a long[].
+	public static final long MAX_SIEVE_LIMIT = (Integer.MAX_VALUE - 8L) * 64 * 2;
+
+	// The biggest limit accepted by count(): segments are numbered with an int, so at most
+	// Integer.MAX_VALUE segments of SEGMENT_BITS odd numbers (about 2^50).
+	public static final long MAX_COUNT_LIMIT = (long) Integer.MAX_VALUE * SEGMENT_BITS * 2 - 1;
+
+	private final long limit;
+	private final long[] composites;
+	private final long count;
+
+	private PrimeSieve(long limit, long[] composites, long count) {
+		this.limit = limit;
+		this.composites = composites;
+		this.count = count;
+	}
+
+	public static void main(String[] args) {
+		long n = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000_000L;
+
+		long start = System.nanoTime();
+		long primes = sequentialCount(n);
+		logger.info("Sequential segmented sieve: {} primes up to {} in {} ms.", primes, n, (System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		primes = count(n);
+		logger.info("Parallel segmented sieve: {} primes up to {} in {} ms.", primes, n, (System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		PrimeSieve sieve = sieve(n);
+		logger.info("Parallel sieve into a bit set of {} MB: {} primes in {} ms, the last one is {}.",
+				sieve.composites.length * 8L / (1024 * 1024), sieve.count(), (System.nanoTime() - start) / 1_000_000,
+				sieve.primes().reduce((a, b) -> b).orElse(0));
+	}
+
+	/**
+	 * Counts the primes up to n (included) in parallel, keeping only one segment per leaf task in memory.
+	 */
+	public static long count(long n) {
+		checkLimit(n, MAX_COUNT_LIMIT);
+		int[] basePrimes = basePrimes(n);
+		long bits = (n + 1) / 2;
+		int segments = segments(bits);
+		long oddPrimes = new RangeTask<>(0, segments, leafSegments(segments), (from, to) -> {
+			long[] scratch = new long[SEGMENT_BITS / 64];
+			long primes = 0;
+			for (int s = from; s < to; s++) {
+				Arrays.fill(scratch, 0L);
+				long fromBit = (long) s * SEGMENT_BITS;
+				primes += sieveSegment(basePrimes, fromBit, Math.min(bits, fromBit + SEGMENT_BITS), scratch, fromBit);
+			}
+			return primes;
+		}, Long::sum).invoke();
+		return oddPrimes + (n >= 2 ? 1 : 0);
+	}
+
+	/**
+	 * The sequential baseline: the same segmented sieve, one segment after the other on the current thread.
+	 */
+	public static long sequentialCount(long n) {
+		checkLimit(n, MAX_COUNT_LIMIT);
+		int[] basePrimes = basePrimes(n);
+		long bits = (n + 1) / 2;
+		long[] scratch = new long[SEGMENT_BITS / 64];
+		long primes = n >= 2 ? 1 : 0;
+		for (long fromBit = 0; fromBit < bits; fromBit += SEGMENT_BITS) {
+			Arrays.fill(scratch, 0L);
+			primes += sieveSegment(basePrimes, fromBit, Math.min(bits, fromBit + SEGMENT_BITS), scratch, fromBit);
+		}
+		return primes;
+	}
+
+	/**
+	 * Sieves the integers up to n (included) in parallel into a bit set.
+	 */
+	public static PrimeSieve sieve(long n) {
+		checkLimit(n, MAX_SIEVE_LIMIT);
+		int[] basePrimes = basePrimes(n);
+		long bits = (n + 1) / 2;
+		long[] composites = new long[(int) ((bits + 63) / 64)];
+		int segments = segments(bits);
+		// Segments start on a word boundary, so no word is written by two tasks.
+		long oddPrimes = new RangeTask<>(0, segments, leafSegments(segments), (from, to) -> {
+			long primes = 0;
+			for (int s = from; s < to; s++) {
+				long fromBit = (long) s * SEGMENT_BITS;
+				primes += sieveSegment(basePrimes, fromBit, Math.min(bits, fromBit + SEGMENT_BITS), composites, 0);
+			}
+			return primes;
+		}, Long::sum).invoke();
+		return new PrimeSieve(n, composites, oddPrimes + (n >= 2 ? 1 : 0));
+	}
+
+	/**
+	 * The integers sieved, from 0 to the limit included.
+	 */
+	public long getLimit() {
+		return limit;
+	}
+
+	/**
+	 * The number of primes up to the limit.
+	 */
+	public long count() {
+		return count;
+	}
+
+	public boolean isPrime(long x) {
+		if (x < 0 || x > limit) {
+			throw new IllegalArgumentException(x + " is outside the sieved range [0, " + limit + "]");
+		}
+		if (x < 3) {
+			return x == 2;
+		}
+		return (x & 1) == 1 && !isComposite((x - 1) >>> 1);
+	}
+
+	/**
+	 * The primes up to the limit, in ascending order.
+	 */
+	public LongStream primes() {
+		return StreamSupport.longStream(new PrimeSpliterator(), false);
+	}
+
+	/**
+	 * The integers from 2 to the limit that are not prime, in ascending order.
+	 */
+	public LongStream composites() {
+		return LongStream.rangeClosed(2, limit).filter(x -> !isPrime(x));
+	}
+
+	private boolean isComposite(long bit) {
+		return (composites[(int) (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	/*
+	 * Crosses out the odd composites in the bits [fromBit, toBit) of the words (the bit b is in the word
+	 * (b - base) / 64, base is a multiple of 64) and returns the number of primes left in the segment.
+	 * The base primes must include all the odd primes up to sqrt(2 * toBit - 1).
+	 */
+	static long sieveSegment(int[] basePrimes, long fromBit, long toBit, long[] words, long base) {
+		long low = 2 * fromBit + 1;
+		long high = 2 * toBit - 1;
+		if (fromBit == 0) {
+			words[0] |= 1L; // 1 is not a prime.
+		}
+		for (int p : basePrimes) {
+			long square = (long) p * p;
+			if (square > high) {
+				break;
+			}
+			long first = square;
+			if (first < low) {
+				first = (low + p - 1) / p * p;
+				if ((first & 1) == 0) {
+					first += p;
+				}
+			}
+			// Odd multiples are 2p apart, that is p bits.
+			for (long b = (first - 1) >>> 1; b < toBit; b += p) {
+				words[(int) ((b - base) >>> 6)] |= 1L << b;
+			}
+		}
+		// Bits after toBit in the last word are never set.
+		long composite = 0;
+		int fromWord = (int) ((fromBit - base) >>> 6);
+		int toWord = (int) ((toBit - base + 63) >>> 6);
+		for (int w = fromWord; w < toWord; w++) {
+			composite += Long.bitCount(words[w]);
+		}
+		return toBit - fromBit - composite;
+	}
+
+	/*
+	 * The odd primes up to sqrt(n), with a plain sieve.
+	 */
+	static int[] basePrimes(long n) {
+		long root = (long) Math.sqrt((double) n);
+		while (root * root > n) {
+			root--;
+		}
+		while ((root + 1) * (root + 1) <= n) {
+			root++;
+		}
+		int limit = (int) root;
+		boolean[] composite = new boolean[limit + 1];
+		int[] primes = new int[Math.max(16, (int) (1.3 * limit / Math.max(1, Math.log(limit))))];
+		int count = 0;
+		for (int i = 3; i <= limit; i += 2) {
+			if (!composite[i]) {
+				if (count == primes.length) {
+					primes = Arrays.copyOf(primes, count * 2);
+				}
+				primes[count++] = i;
+				for (long j = (long) i * i; j <= limit; j += 2 * i) {
+					composite[(int) j] = true;
+				}
+			}
+		}
+		return Arrays.copyOf(primes, count);
+	}
+
+	private static int segments(long bits) {
+		return (int) ((bits + SEGMENT_BITS - 1) / SEGMENT_BITS);
+	}
+
+	// About SplitThreshold.LEAVES_PER_WORKER leaves per worker of the pool.
+	private static int leafSegments(int segments) {
+		return Math.max(1, segments / (SplitThreshold.currentPool().getParallelism() * SplitThreshold.LEAVES_PER_WORKER));
+	}
+
+	private static void checkLimit(long n, long max) {
+		if (n < 0 || n > max) {
+			throw new IllegalArgumentException("Limit out of range [0, " + max + "]: " + n);
+		}
+	}
+
+	/*
+	 * Walks the clear bits of the sieve, a word at a time.
+	 */
+	private final class PrimeSpliterator extends Spliterators.AbstractLongSpliterator {
+
+		private final long lastWordMask;
+		private boolean two = limit >= 2;
+		private int word = -1;
+		private long pending; // The primes of the current word not returned yet, as set bits.
+
+		private PrimeSpliterator() {
+			super(count, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED
+					| Spliterator.NONNULL | Spliterator.IMMUTABLE | Spliterator.SIZED);
+			int tail = (int) (((limit + 1) / 2) % 64);
+			this.lastWordMask = tail == 0 ? -1L : (1L << tail) - 1;
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (two) {
+				two = false;
+				action.accept(2);
+				return true;
+			}
+			while (pending == 0) {
+				if (++word >= composites.length) {
+					return false;
+				}
+				pending = ~composites[word];
+				if (word == composites.length - 1) {
+					pending &= lastWordMask;
+				}
+			}
+			int bit = Long.numberOfTrailingZeros(pending);
+			pending &= pending - 1;
+			action.accept(2 * ((long) word * 64 + bit) + 1);
+			return true;
+		}
+
+		@Override
+		public Comparator<? super Long> getComparator() {
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,318 @@
+package com.objectway.parallel;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * A lazy LongStream of the primes, in ascending order, starting from an arbitrary offset:
+ * PrimeStream.from(x).limit(10_000) are the next 10,000 primes after x. Nothing is computed before
+ * the stream is consumed and the primes already returned are not kept.
+ *
+ * While the candidates are small enough the source is an incremental segmented sieve: it sieves one
+ * segment of SEGMENT_BITS odd numbers (8 KB) at a time with PrimeSieve, and the base primes up to the
+ * square root of the segment are extended only when the stream gets there.
+ * Over SIEVE_LIMIT the base primes would take too much memory and the primes are sparse: the candidates
+ * are the numbers coprime to 2, 3 and 5 (a wheel of 30), each one tested with isPrime(), a Miller-Rabin
+ * test that is deterministic for every long.
+ *
+ * The stream is sequential: it can't be split, since every segment depends on where the previous one ends.
+ * It ends with the last prime smaller than Long.MAX_VALUE.
+ *
+ * @see com.objectway.parallel.PrimeSieve
+ */
+public final class PrimeStream {
+
+	private static final Logger logger = LoggerFactory.getLogger(PrimeStream.class.getName());
+
+	// Odd numbers sieved at a time: 2^16 bits, 8 KB.
+	public static final int SEGMENT_BITS = 1 << 16;
+
+	// The biggest base prime kept in memory: 2^22, about 300,000 primes.
+	public static final int MAX_BASE_PRIME = 1 << 22;
+
+	// Over this limit the candidates are tested with Miller-Rabin.
+	public static final long SIEVE_LIMIT = (long) MAX_BASE_PRIME * MAX_BASE_PRIME;
+
+	/*
+	 * With these bases Miller-Rabin has no false positives below 3.3 * 10^24, so below 2^63 too.
+	 */
+	private static final int[] WITNESSES = { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37 };
+
+	// Distances between the numbers coprime to 30, starting from 1: 1, 7, 11, 13, 17, 19, 23, 29, 31...
+	private static final int[] WHEEL = { 6, 4, 2, 4, 2, 4, 6, 2 };
+
+	private PrimeStream() {}
+
+	public static void main(String[] args) {
+		logger.info("The first 20 primes: {}", Arrays.toString(primes().limit(20).toArray()));
+
+		for (long offset : new long[] { 1_000_000_000L, 1_000_000_000_000L, SIEVE_LIMIT - 1_000_000, 1_000_000_000_000_000_000L }) {
+			long start = System.nanoTime();
+			long[] next = from(offset).limit(10_000).toArray();
+			logger.info("The next 10,000 primes after {}: from {} to {} in {} ms.",
+					offset, next[0], next[next.length - 1], (System.nanoTime() - start) / 1_000_000);
+		}
+	}
+
+	/**
+	 * All the primes: 2, 3, 5, 7, 11...
+	 */
+	public static LongStream primes() {
+		return from(2);
+	}
+
+	/**
+	 * The primes greater than or equal to offset, in ascending order.
+	 */
+	public static LongStream from(long offset) {
+		return StreamSupport.longStream(new PrimeSpliterator(offset), false);
+	}
+
+	/**
+	 * The smallest prime greater than or equal to n, or -1 if there's none in the long range.
+	 */
+	public static long nextPrime(long n) {
+		return from(n).findFirst().orElse(-1L);
+	}
+
+	/**
+	 * A deterministic primality test for any long: trial division by the small primes, then a
+	 * Miller-Rabin test with the first 12 primes as bases.
+	 */
+	public static boolean isPrime(long n) {
+		if (n < 2) {
+			return false;
+		}
+		for (int p : WITNESSES) {
+			if (n % p == 0) {
+				return n == p;
+			}
+		}
+		if (n < 41 * 41) {
+			return true;
+		}
+		return new Montgomery(n).millerRabin();
+	}
+
+	/*
+	 * Arithmetic modulo an odd n < 2^63 in Montgomery form (x is stored as x * 2^64 mod n), so that a
+	 * modular multiplication needs two multiplications and no division. Java 8 has no
+	 * Math.multiplyHigh(), so the high 64 bits of a product are computed by 32 bit halves.
+	 */
+	private static final class Montgomery {
+
+		private final long n;
+		private final long inverse; // n * inverse = 1 mod 2^64
+		private final long one; // 2^64 mod n, that is 1 in Montgomery form
+		private final long r2; // 2^128 mod n, to convert numbers to Montgomery form
+
+		private Montgomery(long n) {
+			this.n = n;
+			long inv = n; // Right on the lowest 3 bits, every Newton step doubles them.
+			for (int i = 0; i < 5; i++) {
+				inv *= 2 - n * inv;
+			}
+			this.inverse = inv;
+			long r = Long.remainderUnsigned(-1L, n) + 1;
+			this.one = r == n ? 0 : r;
+			for (int i = 0; i < 64; i++) { // r * 2^64 mod n, doubling 64 times.
+				r <<= 1;
+				if (Long.compareUnsigned(r, n) >= 0) {
+					r -= n;
+				}
+			}
+			this.r2 = r;
+		}
+
+		private boolean millerRabin() {
+			long d = n - 1;
+			int s = Long.numberOfTrailingZeros(d);
+			d >>>= s;
+			long minusOne = n - one;
+			for (int a : WITNESSES) {
+				long x = pow(multiply(a, r2), d);
+				if (x == one || x == minusOne) {
+					continue;
+				}
+				boolean composite = true;
+				for (int i = 1; i < s && composite; i++) {
+					x = multiply(x, x);
+					composite = x != minusOne;
+				}
+				if (composite) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private long pow(long base, long exponent) {
+			long result = one;
+			while (exponent != 0) {
+				if ((exponent & 1) != 0) {
+					result = multiply(result, base);
+				}
+				base = multiply(base, base);
+				exponent >>>= 1;
+			}
+			return result;
+		}
+
+		// a * b / 2^64 mod n, for a and b smaller than n.
+		private long multiply(long a, long b) {
+			long high = unsignedMultiplyHigh(a, b);
+			long q = a * b * inverse;
+			long h = unsignedMultiplyHigh(q, n);
+			long result = high - h;
+			return Long.compareUnsigned(high, h) < 0 ? result + n : result;
+		}
+
+		private static long unsignedMultiplyHigh(long x, long y) {
+			long x1 = x >>> 32;
+			long x2 = x & 0xFFFFFFFFL;
+			long y1 = y >>> 32;
+			long y2 = y & 0xFFFFFFFFL;
+			long low = x2 * y2;
+			long middle = x1 * y2 + (low >>> 32);
+			long middle2 = x2 * y1 + (middle & 0xFFFFFFFFL);
+			return x1 * y1 + (middle >>> 32) + (middle2 >>> 32);
+		}
+
+	}
+
+	/*
+	 * The source of the stream. It sieves a segment at a time until SIEVE_LIMIT, then walks the wheel.
+	 */
+	private static final class PrimeSpliterator extends Spliterators.AbstractLongSpliterator {
+
+		private boolean two;
+		private boolean exhausted;
+
+		// Sieve: the segment [segmentFrom, segmentTo) of odd numbers (bit b stands for 2b + 1).
+		private final long[] words = new long[SEGMENT_BITS / 64];
+		private long segmentFrom;
+		private long segmentTo;
+		private long nextBit;
+		private int word = -1;
+		private long pending; // The primes of the current word not returned yet, as set bits.
+		private int[] basePrimes = new int[0];
+		private long baseLimit;
+
+		// Wheel: the next candidate and its position on the wheel.
+		private long candidate;
+		private int spoke;
+
+		private PrimeSpliterator(long offset) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED
+					| Spliterator.NONNULL | Spliterator.IMMUTABLE);
+			this.two = offset <= 2;
+			long firstOdd = Math.max(3, offset | 1);
+			if (offset == Long.MAX_VALUE) {
+				exhausted = true;
+			} else if (firstOdd <= SIEVE_LIMIT) {
+				nextBit = (firstOdd - 1) >>> 1;
+			} else {
+				startWheel(firstOdd);
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			if (two) {
+				two = false;
+				action.accept(2);
+				return true;
+			}
+			while (!exhausted) {
+				long prime = candidate == 0 ? nextFromSieve() : nextFromWheel();
+				if (prime > 0) {
+					action.accept(prime);
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Comparator<? super Long> getComparator() {
+			return null;
+		}
+
+		// The next prime of the current segment, or 0 if the segment is over.
+		private long nextFromSieve() {
+			while (pending == 0) {
+				if (++word >= (segmentTo - segmentFrom + 63) >>> 6) {
+					nextSegment();
+					return 0;
+				}
+				pending = ~words[word];
+				long wordStart = segmentFrom + ((long) word << 6);
+				if (wordStart < nextBit) { // Bits before the offset.
+					pending &= -1L << (nextBit - wordStart);
+				}
+				if (segmentTo - wordStart < 64) { // Bits after the segment.
+					pending &= (1L << (segmentTo - wordStart)) - 1;
+				}
+			}
+			int bit = Long.numberOfTrailingZeros(pending);
+			pending &= pending - 1;
+			return 2 * (segmentFrom + ((long) word << 6) + bit) + 1;
+		}
+
+		private void nextSegment() {
+			if (segmentTo > 0) {
+				nextBit = segmentTo;
+			}
+			if (2 * nextBit + 1 > SIEVE_LIMIT) {
+				startWheel(2 * nextBit + 1);
+				return;
+			}
+			segmentFrom = nextBit & ~63L; // The sieve works on whole words.
+			segmentTo = Math.min(segmentFrom + SEGMENT_BITS, (SIEVE_LIMIT + 1) / 2);
+			long high = 2 * segmentTo - 1;
+			if (baseLimit * baseLimit < high) {
+				// Twice the needed base primes, so that they're not extended at every segment.
+				baseLimit = Math.min(MAX_BASE_PRIME, Math.max(2 * baseLimit, (long) Math.sqrt((double) high) + 1));
+				basePrimes = PrimeSieve.basePrimes(baseLimit * baseLimit);
+			}
+			Arrays.fill(words, 0L);
+			PrimeSieve.sieveSegment(basePrimes, segmentFrom, segmentTo, words, segmentFrom);
+			word = -1;
+			pending = 0;
+		}
+
+		private void startWheel(long from) {
+			// The first number coprime to 30 not smaller than from (the wheel starts from 1).
+			long base = from - (from - 1) % 30;
+			spoke = 0;
+			candidate = base;
+			while (candidate < from) {
+				candidate += WHEEL[spoke];
+				spoke = (spoke + 1) % WHEEL.length;
+			}
+		}
+
+		// The current candidate if it's prime, otherwise 0. Then it moves to the next candidate.
+		private long nextFromWheel() {
+			long current = candidate;
+			candidate += WHEEL[spoke];
+			spoke = (spoke + 1) % WHEEL.length;
+			if (candidate < 0) { // Past Long.MAX_VALUE.
+				exhausted = true;
+			}
+			return isPrime(current) ? current : 0;
+		}
+
+	}
+
+}
@@ -23,10 +23,10 @@ public class SequentialOrParallelSum {
 	public static void main(String[] args) {
 
 		// Iterative sequential code timing.
-		measurePerf(SequentialOrParallelSum::functionalSequentialSum, NUMBERS, "Iterative sequential");
+		measurePerf(SequentialOrParallelSum::iterativeSequentialSum, NUMBERS, "Iterative sequential");
 
 		// Functional sequential code timing.
-		measurePerf(SequentialOrParallelSum::iterativeSequentialSum, NUMBERS, "Functional Sequential");
+		measurePerf(SequentialOrParallelSum::functionalSequentialSum, NUMBERS, "Functional Sequential");
 
 		// Functional Parallel code timing.
 		measurePerf(SequentialOrParallelSum::functionalParallelSum, NUMBERS, "Executing on " 
@@ -86,14 +86,16 @@ public class SequentialOrParallelSum {
 	
 	/**
 	 * Executes the given function 10 times and capture the fastest execution time.
+	 * This is only a rough estimate: there's no control over warm-up, JIT compilation and dead code
+	 * elimination. Trustworthy numbers come from the JMH benchmarks of the fcp-benchmarks module.
 	 */
 	public static long measurePerf(LongUnaryOperator adder, long n, String msg) {
 		long fastest = Long.MAX_VALUE;
 		for (int i = 0; i < 10; i++) {
-			long start = System.currentTimeMillis();
+			long start = System.nanoTime();
 			adder.applyAsLong(n);
-			long end = System.currentTimeMillis();
-			long duration = end - start;
+			long end = System.nanoTime();
+			long duration = (end - start) / 1_000_000;
 			if (duration < fastest)
 				fastest = duration;
 		}
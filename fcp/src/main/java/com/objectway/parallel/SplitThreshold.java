@@ -0,0 +1,176 @@
+package com.objectway.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Decides when a fork/join task must stop splitting and compute sequentially, and records
+ * how many tasks a run has produced. One instance is meant to be shared by all the tasks
+ * of a single run.
+ * 
+ * A fixed threshold (like ForkJoinFramework.THRESHOLD) is tuned for one machine only: on many cores
+ * it produces too few leaves and leaves cores idle, on few cores it produces lots of tiny tasks.
+ * The adaptive strategies size the leaves in this way:
+ *   1) forParallelism(): about LEAVES_PER_WORKER leaves for each worker of the pool, so that
+ *      work stealing can still balance the load when some leaves are slower than others.
+ *   2) calibrated(): like the previous one, but a leaf must contain at least TARGET_LEAF_NANOS of
+ *      work, measured with a short calibration run of the leaf code. Cheap per-element work
+ *      gets bigger leaves.
+ * Adaptive thresholds also look at ForkJoinTask.getSurplusQueuedTaskCount(): when the current worker 
+ * already has more queued tasks than the others could steal, splitting further is only overhead, 
+ * so a task stops splitting as soon as it's below MAX_LEAF_FACTOR times the threshold.
+ */
+public final class SplitThreshold {
+
+	// Desired number of leaves per worker thread.
+	public static final int LEAVES_PER_WORKER = 8;
+
+	// Calibrated leaves should last at least this time (fork and join cost about a microsecond).
+	public static final long TARGET_LEAF_NANOS = 100_000L;
+
+	// Surplus of queued tasks over which the current worker is considered busy enough.
+	public static final int SURPLUS_LIMIT = 3;
+
+	// With surplus work queued, a task becomes a leaf when smaller than threshold * MAX_LEAF_FACTOR.
+	public static final int MAX_LEAF_FACTOR = 4;
+
+	private static final int MIN_THRESHOLD = 1_024;
+	private static final int CALIBRATION_SAMPLE = 4_096;
+	private static final long CALIBRATION_NANOS = 1_000_000L;
+
+	private final int threshold;
+	private final boolean adaptive;
+	private final String strategy;
+	private final LongAdder tasks = new LongAdder();
+	private final LongAdder leaves = new LongAdder();
+
+	private SplitThreshold(int threshold, boolean adaptive, String strategy) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+		}
+		this.threshold = threshold;
+		this.adaptive = adaptive;
+		this.strategy = strategy;
+	}
+
+	/**
+	 * The classic fixed threshold. Tasks split until their size is less or equal than the threshold.
+	 */
+	public static SplitThreshold fixed(int threshold) {
+		return new SplitThreshold(threshold, false, "fixed");
+	}
+
+	/**
+	 * Threshold sized on the parallelism of the pool: about LEAVES_PER_WORKER leaves per worker.
+	 * @param length - The number of elements to process.
+	 * @param parallelism - The parallelism of the pool that will run the tasks.
+	 */
+	public static SplitThreshold forParallelism(long length, int parallelism) {
+		return new SplitThreshold(parallelismThreshold(length, parallelism), true, "parallelism");
+	}
+
+	/**
+	 * Threshold sized on the parallelism of the pool running the caller (if it's a ForkJoinPool worker)
+	 * or of the common pool.
+	 */
+	public static SplitThreshold forCurrentPool(long length) {
+		return forParallelism(length, currentPool().getParallelism());
+	}
+
+	/**
+	 * Threshold sized both on the parallelism and on the cost per element, measured running the
+	 * leaf code on a prefix of the data. The sample run must not have side effects (a reduction is fine,
+	 * an in-place map is not).
+	 * @param length - The number of elements to process.
+	 * @param parallelism - The parallelism of the pool that will run the tasks.
+	 * @param sample - Runs the leaf code on the first n elements.
+	 */
+	public static SplitThreshold calibrated(long length, int parallelism, IntConsumer sample) {
+		int sampleSize = (int) Math.min(length, CALIBRATION_SAMPLE);
+		if (sampleSize == 0) {
+			return new SplitThreshold(MIN_THRESHOLD, true, "calibrated");
+		}
+
+		// Warm up the leaf code once, then run it until enough time is measured.
+		sample.accept(sampleSize);
+		long runs = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			sample.accept(sampleSize);
+			runs++;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < CALIBRATION_NANOS);
+
+		double nanosPerElement = Math.max(elapsed / (double) (runs * sampleSize), 0.01d);
+		long byCost = (long) Math.ceil(TARGET_LEAF_NANOS / nanosPerElement);
+		int threshold = (int) Math.min(Integer.MAX_VALUE, Math.max(byCost, parallelismThreshold(length, parallelism)));
+		return new SplitThreshold(threshold, true, String.format("calibrated (%.2f ns/element)", nanosPerElement));
+	}
+
+	private static int parallelismThreshold(long length, int parallelism) {
+		long leaves = (long) Math.max(parallelism, 1) * LEAVES_PER_WORKER;
+		long threshold = (length + leaves - 1) / leaves;
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(threshold, MIN_THRESHOLD));
+	}
+
+	/**
+	 * The pool of the calling ForkJoinPool worker, or the common pool.
+	 */
+	public static ForkJoinPool currentPool() {
+		ForkJoinPool pool = ForkJoinTask.getPool();
+		return pool != null ? pool : ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * To be called by the compute() method of every task. Records the task and tells whether
+	 * it must be split further or computed sequentially.
+	 * @param length - The number of elements of the task.
+	 * @return true if the task must be split, false if it must be computed sequentially.
+	 */
+	public boolean split(long length) {
+		tasks.increment();
+		boolean split = length > threshold;
+		if (split && adaptive && length <= (long) threshold * MAX_LEAF_FACTOR 
+				&& ForkJoinTask.inForkJoinPool() && ForkJoinTask.getSurplusQueuedTaskCount() > SURPLUS_LIMIT) {
+			split = false;
+		}
+		if (!split) {
+			leaves.increment();
+		}
+		return split;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public String getStrategy() {
+		return strategy;
+	}
+
+	// The number of tasks executed so far, leaves included.
+	public long getTaskCount() {
+		return tasks.sum();
+	}
+
+	// The number of tasks computed sequentially so far.
+	public long getLeafCount() {
+		return leaves.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "SplitThreshold [" + strategy + ", threshold: " + threshold + ", tasks: " + getTaskCount() 
+				+ ", leaves: " + getLeafCount() + "]";
+	}
+
+}
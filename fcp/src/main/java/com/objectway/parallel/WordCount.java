@@ -8,6 +8,8 @@ import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.objectway.collectors.WordCountCollector;
+import com.objectway.model.MutableWordCounter;
 import com.objectway.model.WordCounter;
 
 public class WordCount {
@@ -20,6 +22,7 @@ public class WordCount {
 		logger.info("Counting Words Iteratively: {}", iterativeWordCount(SENTENCE));
 		logger.info("Counting Words Functionally: {}", functionalSequentialWordCount(SENTENCE));
 		logger.info("Counting Words with Spliterator: {}", functionalParallelWordCount(SENTENCE));
+		logger.info("Counting Words with a Collector: {}", collectorParallelWordCount(SENTENCE));
 	}
 	
 	/**
@@ -53,13 +56,23 @@ public class WordCount {
 	}
 	
 	/**
-	 * Functional parallel word count.
+	 * Functional parallel word count. The Spliterator splits the text on whitespaces without copying it.
+	 * The chars are streamed as primitive ints and collected into a mutable container: no boxing and
+	 * no new WordCounter at every word boundary.
 	 */
-	public static int functionalParallelWordCount(String str) {
-		Spliterator<Character> spliterator = new WordCountSpliterator(str);
-		Stream<Character> charStream = StreamSupport.stream(spliterator, true);
-		WordCounter count = charStream.parallel()
-				.reduce(new WordCounter(0, true), WordCounter::accumulate, WordCounter::combine);
+	public static int functionalParallelWordCount(CharSequence str) {
+		Spliterator.OfInt spliterator = new WordCountSpliterator(str);
+		MutableWordCounter count = StreamSupport.intStream(spliterator, true)
+				.collect(MutableWordCounter::new, MutableWordCounter::accumulate, MutableWordCounter::combine);
 		return count.getCounter();
 	}
+	
+	/**
+	 * Functional parallel word count of a Stream<Character> with a Collector. The mutable container
+	 * merges words crossing the split points, so the default splitting of the stream is fine.
+	 */
+	public static int collectorParallelWordCount(String str) {
+		Stream<Character> charStream = IntStream.range(0, str.length()).parallel().mapToObj(str::charAt);
+		return charStream.collect(new WordCountCollector());
+	}
 }
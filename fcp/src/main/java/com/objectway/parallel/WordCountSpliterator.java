@@ -1,35 +1,71 @@
 package com.objectway.parallel;
 
 import java.util.Spliterator;
-import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
-public class WordCountSpliterator implements Spliterator<Character> {
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * A Spliterator over the chars of a CharSequence, used to count words in parallel.
+ * It's a Spliterator.OfInt, so chars are streamed as primitive ints in an IntStream
+ * without boxing them into Character objects.
+ * 
+ * Splitting doesn't copy the text: every Spliterator shares the same CharSequence and only works
+ * on its own range [current, end). The split point is moved forward to the first whitespace
+ * after the middle of the range, so that a word is never cut between two Spliterators.
+ */
+public class WordCountSpliterator implements Spliterator.OfInt {
 	
-	private final String string;
-	private int currentChar = 0;
+	// Ranges smaller than this are not split further.
+	private static final int MIN_SPLIT_SIZE = 10;
+	
+	private final CharSequence text;
+	private int current;
+	private final int end;
 
-	public WordCountSpliterator(String string) {
-		this.string = string;
+	// Constructors.
+	public WordCountSpliterator(CharSequence text) {
+		this(text, 0, text.length());
+	}
+
+	public WordCountSpliterator(CharSequence text, int start, int end) {
+		if (start < 0 || start > end || end > text.length()) {
+			throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + ") of " + text.length() + " chars");
+		}
+		this.text = text;
+		this.current = start;
+		this.end = end;
 	}
 
 	@Override
-	public boolean tryAdvance(Consumer<? super Character> action) {
-		action.accept(string.charAt(currentChar++));
-		return currentChar < string.length();
+	public boolean tryAdvance(IntConsumer action) {
+		if (current >= end) {
+			return false;
+		}
+		action.accept(text.charAt(current++));
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(IntConsumer action) {
+		// A single loop instead of a tryAdvance() call for each char.
+		int i = current;
+		current = end;
+		for (; i < end; i++) {
+			action.accept(text.charAt(i));
+		}
 	}
 
 	@Override
-	public Spliterator<Character> trySplit() {
-		int currentSize = string.length() - currentChar;
-		if (currentSize < 10) {
+	public Spliterator.OfInt trySplit() {
+		int currentSize = end - current;
+		if (currentSize < MIN_SPLIT_SIZE) {
 			return null;
 		}
-		for (int splitPos = currentSize / 2 + currentChar;
-				 splitPos < string.length(); splitPos++) {
-			if (Character.isWhitespace(string.charAt(splitPos))) {
-				Spliterator<Character> spliterator = 
-						new WordCountSpliterator(string.substring(currentChar, splitPos));
-				currentChar = splitPos;
+		for (int splitPos = currentSize / 2 + current; splitPos < end; splitPos++) {
+			if (Character.isWhitespace(text.charAt(splitPos))) {
+				Spliterator.OfInt spliterator = new WordCountSpliterator(text, current, splitPos);
+				current = splitPos;
 				return spliterator;
 			}
 		}
@@ -38,12 +74,14 @@ public class WordCountSpliterator implements Spliterator<Character> {
 
 	@Override
 	public long estimateSize() {
-		return string.length() - currentChar;
+		return end - current;
 	}
 
+	// Only a String is known to be immutable: a StringBuilder or a CharBuffer can change under the stream.
 	@Override
 	public int characteristics() {
-		return ORDERED + SIZED + SUBSIZED + NONNULL + IMMUTABLE;
+		int characteristics = ORDERED + SIZED + SUBSIZED + NONNULL;
+		return text instanceof String ? characteristics + IMMUTABLE : characteristics;
 	}
 
 }
@@ -0,0 +1,171 @@
+package com.objectway.parallel;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.parallel.kernels.RangeTask;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Parallel word frequencies of a text. WordCount only returns the total and StreamGeneration only
+ * the number of distinct words: here the exact count of every word is computed, and the most
+ * frequent words are extracted with WordFrequencyMap.topK().
+ * 
+ * The text is split with the Fork-Join Framework on whitespaces (like WordCountSpliterator does),
+ * and every worker thread of the pool counts the words of its leaves into its own WordFrequencyMap:
+ * no locks and no shared map while counting. At the end the per-worker maps are merged in parallel,
+ * two by two.
+ * Words are sequences of chars separated by whitespaces, and they're case sensitive.
+ * 
+ * @see com.objectway.parallel.WordFrequencyMap
+ */
+public class WordFrequency {
+
+	private static final Logger logger = LoggerFactory.getLogger(WordFrequency.class.getName());
+
+	// Leaves smaller than this are not worth a split.
+	public static final int MIN_LEAF = 64 * 1024;
+
+	public static void main(String[] args) throws IOException {
+		CharSequence text = args.length > 0 
+				? new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8) 
+				: sampleText(10_000_000);
+
+		long start = System.nanoTime();
+		WordFrequencyMap sequential = sequentialCount(text);
+		logger.info("Sequential: {} distinct words, {} words in {} ms.", sequential.size(), sequential.total(), 
+				(System.nanoTime() - start) / 1_000_000);
+
+		start = System.nanoTime();
+		WordFrequencyMap parallel = count(text);
+		List<Map.Entry<String, Long>> top = parallel.topK(10);
+		logger.info("Parallel: {} distinct words, {} words in {} ms.", parallel.size(), parallel.total(), 
+				(System.nanoTime() - start) / 1_000_000);
+		logger.info("Top 10 words: {}", top);
+	}
+
+	public static WordFrequencyMap count(CharSequence text) {
+		PerWorkerMaps maps = new PerWorkerMaps();
+		int length = text.length();
+		int leaf = Math.max(SplitThreshold.forCurrentPool(length).getThreshold(), MIN_LEAF);
+		new CountTask(text, 0, length, leaf, maps).invoke();
+		return maps.merge();
+	}
+
+	// The sequential baseline.
+	public static WordFrequencyMap sequentialCount(CharSequence text) {
+		WordFrequencyMap map = new WordFrequencyMap();
+		countRange(text, 0, text.length(), map);
+		return map;
+	}
+
+	/**
+	 * Adds the words of text[start, end) to the map.
+	 */
+	public static void countRange(CharSequence text, int start, int end, WordFrequencyMap map) {
+		int wordStart = -1;
+		for (int i = start; i < end; i++) {
+			if (Character.isWhitespace(text.charAt(i))) {
+				if (wordStart >= 0) {
+					map.add(text, wordStart, i);
+					wordStart = -1;
+				}
+			} else if (wordStart < 0) {
+				wordStart = i;
+			}
+		}
+		if (wordStart >= 0) {
+			map.add(text, wordStart, end);
+		}
+	}
+
+	/**
+	 * One WordFrequencyMap for each thread taking part to a single computation.
+	 * A map is only ever touched by its own thread until merge() is called, after all the tasks are completed.
+	 */
+	public static final class PerWorkerMaps {
+
+		private final Map<Thread, WordFrequencyMap> maps = new ConcurrentHashMap<>();
+
+		// The map of the calling thread.
+		public WordFrequencyMap get() {
+			return maps.computeIfAbsent(Thread.currentThread(), t -> new WordFrequencyMap());
+		}
+
+		// Merges the maps in parallel, two by two.
+		public WordFrequencyMap merge() {
+			List<WordFrequencyMap> all = new ArrayList<>(maps.values());
+			if (all.isEmpty()) {
+				return new WordFrequencyMap();
+			}
+			return new RangeTask<>(0, all.size(), 1, (s, e) -> all.get(s), WordFrequencyMap::merge).invoke();
+		}
+
+	}
+
+	private static final class CountTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -6512237012870410153L;
+
+		private final CharSequence text;
+		private final int start;
+		private final int end;
+		private final int leaf;
+		private final PerWorkerMaps maps;
+
+		private CountTask(CharSequence text, int start, int end, int leaf, PerWorkerMaps maps) {
+			this.text = text;
+			this.start = start;
+			this.end = end;
+			this.leaf = leaf;
+			this.maps = maps;
+		}
+
+		@Override
+		protected void compute() {
+			int length = end - start;
+			int middle = length > leaf ? nextWhitespace(start + length / 2) : end;
+			if (middle >= end) { // Small enough, or no whitespace to split on.
+				countRange(text, start, end, maps.get());
+				return;
+			}
+
+			CountTask leftTask = new CountTask(text, start, middle, leaf, maps);
+			leftTask.fork();
+			new CountTask(text, middle, end, leaf, maps).compute();
+			leftTask.join();
+		}
+
+		private int nextWhitespace(int position) {
+			while (position < end && !Character.isWhitespace(text.charAt(position))) {
+				position++;
+			}
+			return position;
+		}
+
+	}
+
+	// A text where a few words are very frequent and most are rare, like in natural languages.
+	private static CharSequence sampleText(int words) {
+		Random random = new Random(42);
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < words; i++) {
+			int rank = (int) Math.pow(100_000, random.nextDouble());
+			text.append("word").append(rank).append(i % 15 == 14 ? '\n' : ' ');
+		}
+		return text;
+	}
+
+}
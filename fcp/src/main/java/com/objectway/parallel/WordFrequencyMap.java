@@ -0,0 +1,211 @@
+package com.objectway.parallel;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * A word -> count hash map with primitive long values and open addressing (linear probing).
+ * A Map<String, Long> would box every count and allocate an entry for every word: here keys and
+ * counts live in two parallel arrays.
+ * 
+ * Words are added as ranges of a CharSequence: the hash is computed on the chars of the range and
+ * a String is created only the first time a word is seen. The hash is the same of String.hashCode(),
+ * so merging two maps reuses the hash cached inside the keys.
+ * 
+ * Not thread-safe: every worker fills its own map and the maps are merged at the end.
+ * 
+ * @see com.objectway.parallel.WordFrequency
+ */
+public class WordFrequencyMap {
+
+	// Orders entries by descending count, then alphabetically.
+	public static final Comparator<Map.Entry<String, Long>> BY_FREQUENCY = 
+			Comparator.<Map.Entry<String, Long>>comparingLong(Map.Entry::getValue).reversed()
+				.thenComparing(Map.Entry::getKey);
+
+	private static final int INITIAL_CAPACITY = 1 << 12;
+
+	private String[] keys;
+	private long[] counts;
+	private int size;
+	private int mask;
+
+	public WordFrequencyMap() {
+		keys = new String[INITIAL_CAPACITY];
+		counts = new long[INITIAL_CAPACITY];
+		mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Adds one occurrence of the word text[start, end).
+	 */
+	public void add(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + text.charAt(i);
+		}
+		int index = spread(hash) & mask;
+		String key;
+		while ((key = keys[index]) != null) {
+			if (key.hashCode() == hash && matches(key, text, start, end)) {
+				counts[index]++;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+		insert(index, text.subSequence(start, end).toString(), 1);
+	}
+
+	/**
+	 * Adds count occurrences of the word.
+	 */
+	public void add(String word, long count) {
+		int index = spread(word.hashCode()) & mask;
+		String key;
+		while ((key = keys[index]) != null) {
+			if (key.equals(word)) {
+				counts[index] += count;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+		insert(index, word, count);
+	}
+
+	/**
+	 * Adds all the counts of the other map into the biggest of the two, and returns it.
+	 */
+	public WordFrequencyMap merge(WordFrequencyMap other) {
+		if (other.size > size) {
+			return other.merge(this);
+		}
+		other.forEach(this::add);
+		return this;
+	}
+
+	public long get(String word) {
+		int index = spread(word.hashCode()) & mask;
+		String key;
+		while ((key = keys[index]) != null) {
+			if (key.equals(word)) {
+				return counts[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return 0L;
+	}
+
+	// The number of distinct words.
+	public int size() {
+		return size;
+	}
+
+	// The number of words, duplicates included.
+	public long total() {
+		long total = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				total += counts[i];
+			}
+		}
+		return total;
+	}
+
+	public void forEach(ObjLongConsumer<String> action) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				action.accept(keys[i], counts[i]);
+			}
+		}
+	}
+
+	/**
+	 * The k most frequent words, by descending count. Ties are broken alphabetically.
+	 * A min-heap of at most k entries holds the best words seen so far: O(n log k) instead of
+	 * sorting the whole vocabulary in O(n log n).
+	 */
+	public List<Map.Entry<String, Long>> topK(int k) {
+		if (k <= 0) {
+			return new ArrayList<>();
+		}
+		// The head of the heap is the worst entry kept, the first to be replaced.
+		PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(Math.min(k, Math.max(size, 1)) + 1, 
+				BY_FREQUENCY.reversed());
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == null) {
+				continue;
+			}
+			if (heap.size() < k) {
+				heap.add(new SimpleImmutableEntry<>(keys[i], counts[i]));
+			} else {
+				Map.Entry<String, Long> worst = heap.peek();
+				if (counts[i] > worst.getValue() || (counts[i] == worst.getValue() && keys[i].compareTo(worst.getKey()) < 0)) {
+					heap.poll();
+					heap.add(new SimpleImmutableEntry<>(keys[i], counts[i]));
+				}
+			}
+		}
+		List<Map.Entry<String, Long>> top = new ArrayList<>(heap);
+		top.sort(BY_FREQUENCY);
+		return top;
+	}
+
+	private void insert(int index, String word, long count) {
+		keys[index] = word;
+		counts[index] = count;
+		// Keeps the load factor under 0.5: linear probing degrades quickly over that.
+		if (++size > keys.length >> 1) {
+			resize();
+		}
+	}
+
+	private void resize() {
+		String[] oldKeys = keys;
+		long[] oldCounts = counts;
+		keys = new String[oldKeys.length << 1];
+		counts = new long[oldKeys.length << 1];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int index = spread(oldKeys[i].hashCode()) & mask;
+				while (keys[index] != null) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = oldKeys[i];
+				counts[index] = oldCounts[i];
+			}
+		}
+	}
+
+	private static boolean matches(String key, CharSequence text, int start, int end) {
+		if (key.length() != end - start) {
+			return false;
+		}
+		for (int i = start; i < end; i++) {
+			if (key.charAt(i - start) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Mixes the high bits into the low ones, used to select the slot.
+	private static int spread(int hash) {
+		return (hash ^ (hash >>> 16)) * 0x9E3779B9;
+	}
+
+	@Override
+	public String toString() {
+		return "WordFrequencyMap [distinct: " + size + ", capacity: " + keys.length + ", top: " 
+				+ Arrays.toString(topK(3).toArray()) + "]";
+	}
+
+}
@@ -0,0 +1,35 @@
+package com.objectway.parallel.accumulators;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The simplest correct accumulator: read the current value, compute the new one and publish it
+ * with a compare-and-set. If another thread changed the value in the meantime, try again.
+ * No locks, but under contention most of the CAS operations fail and the cache line holding the
+ * value bounces between cores.
+ */
+public class CasAccumulator implements ConcurrentAccumulator {
+
+	private final AtomicLong total = new AtomicLong();
+
+	@Override
+	public void add(long value) {
+		long current;
+		do {
+			current = total.get();
+		} while (!total.compareAndSet(current, current + value));
+	}
+
+	@Override
+	public long sum() {
+		return total.get();
+	}
+
+	@Override
+	public void reset() {
+		total.set(0L);
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.objectway.parallel.accumulators;
+
+import java.util.function.LongConsumer;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * A thread-safe sum of long values, usable as a side-effecting sink of a parallel stream:
+ *   LongStream.rangeClosed(1, n).parallel().forEach(accumulator::add);
+ * Unlike com.objectway.model.Accumulator, the result is always correct. The implementations differ in 
+ * how they behave when many threads add at the same time:
+ *   1) CasAccumulator: a single AtomicLong updated with a compare-and-set loop. Correct, but all threads
+ *      fight for the same cache line.
+ *   2) StripedAccumulator: a set of padded cells, threads colliding on a cell move to another one.
+ *   3) ThreadLocalAccumulator: one cell per thread, written by its owner only and merged by sum().
+ * 
+ * sum() is exact once all the additions are completed (e.g. after the terminal operation of the stream).
+ * While additions are in progress, it's only a snapshot.
+ * 
+ * @see com.objectway.model.Accumulator
+ * @see com.objectway.parallel.ParallelSumWithSideEffects
+ */
+public interface ConcurrentAccumulator extends LongConsumer {
+
+	void add(long value);
+
+	long sum();
+
+	// Resets the sum to zero. Not atomic with respect to concurrent additions.
+	void reset();
+
+	@Override
+	default void accept(long value) {
+		add(value);
+	}
+
+}
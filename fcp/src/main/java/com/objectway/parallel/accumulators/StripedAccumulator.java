@@ -0,0 +1,80 @@
+package com.objectway.parallel.accumulators;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * A striped-cell counter, the same idea of java.util.concurrent.atomic.LongAdder.
+ * The sum is spread over a set of cells: every thread adds to "its" cell with a CAS and, when the
+ * CAS fails because another thread is using the same cell, it moves to another random cell.
+ * sum() adds all the cells together.
+ * 
+ * Cells are PADDING longs apart in a single AtomicLongArray, so that two cells never share the same
+ * cache line (false sharing would make them contend exactly like a single AtomicLong).
+ */
+public class StripedAccumulator implements ConcurrentAccumulator {
+
+	// 16 longs = 128 bytes: two cache lines, because of the adjacent line prefetcher.
+	private static final int PADDING = 16;
+
+	// The cell used last by each thread. Shared by all the instances, it's just a hint.
+	private static final ThreadLocal<int[]> probe = ThreadLocal.withInitial(
+			() -> new int[] { ThreadLocalRandom.current().nextInt() });
+
+	private final AtomicLongArray cells;
+	private final int mask;
+
+	// Constructors.
+	public StripedAccumulator() {
+		this(Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	public StripedAccumulator(int stripes) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+		}
+		// Rounded to a power of two, so that a cell is selected with a mask.
+		int size = Integer.highestOneBit(stripes);
+		if (size < stripes) {
+			size <<= 1;
+		}
+		this.mask = size - 1;
+		this.cells = new AtomicLongArray(size * PADDING);
+	}
+
+	@Override
+	public void add(long value) {
+		int[] hint = probe.get();
+		int index = (hint[0] & mask) * PADDING;
+		long current = cells.get(index);
+		while (!cells.compareAndSet(index, current, current + value)) {
+			// Collision: move to another cell for this and the next additions.
+			hint[0] = ThreadLocalRandom.current().nextInt();
+			index = (hint[0] & mask) * PADDING;
+			current = cells.get(index);
+		}
+	}
+
+	@Override
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < cells.length(); i += PADDING) {
+			sum += cells.get(i);
+		}
+		return sum;
+	}
+
+	@Override
+	public void reset() {
+		for (int i = 0; i < cells.length(); i += PADDING) {
+			cells.set(i, 0L);
+		}
+	}
+
+	public int getStripes() {
+		return mask + 1;
+	}
+
+}
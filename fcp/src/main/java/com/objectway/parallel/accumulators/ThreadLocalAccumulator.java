@@ -0,0 +1,55 @@
+package com.objectway.parallel.accumulators;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Every thread accumulates into its own cell, so there's no contention at all while adding.
+ * A cell has a single writer (its thread), so it's updated with a plain read and an ordered
+ * write (lazySet) instead of a CAS. The cells are registered when a thread adds for the first time,
+ * and sum() merges all of them at the end.
+ * 
+ * Cells are kept for the whole life of the accumulator, even when their threads terminate: 
+ * use one instance per computation, with a pool of threads (like the ForkJoinPool of parallel streams).
+ */
+public class ThreadLocalAccumulator implements ConcurrentAccumulator {
+
+	private final Queue<AtomicLong> cells = new ConcurrentLinkedQueue<>();
+
+	private final ThreadLocal<AtomicLong> cell = ThreadLocal.withInitial(() -> {
+		AtomicLong newCell = new AtomicLong();
+		cells.add(newCell);
+		return newCell;
+	});
+
+	@Override
+	public void add(long value) {
+		AtomicLong mine = cell.get();
+		mine.lazySet(mine.get() + value);
+	}
+
+	@Override
+	public long sum() {
+		long sum = 0;
+		for (AtomicLong c : cells) {
+			sum += c.get();
+		}
+		return sum;
+	}
+
+	@Override
+	public void reset() {
+		for (AtomicLong c : cells) {
+			c.set(0L);
+		}
+	}
+
+	// The number of threads that have added at least once.
+	public int getThreadCount() {
+		return cells.size();
+	}
+
+}
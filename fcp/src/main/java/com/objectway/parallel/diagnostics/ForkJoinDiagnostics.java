@@ -0,0 +1,233 @@
+package com.objectway.parallel.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Diagnostics for a single run of fork/join tasks or parallel streams, on a dedicated ForkJoinPool
+ * or on the common pool. Two sources of information are combined:
+ *   1) A sampler thread polls the pool at a fixed period: queued tasks, queued submissions, active and
+ *      running threads. Together with the steal count of the pool, this shows the queue depth over time.
+ *   2) A WorkStealingRecorder collects the forks, the steals, the leaf durations and the busy time of
+ *      every worker. Tasks must report to the recorder, streams are instrumented with instrument().
+ * 
+ * Usage:
+ *   ForkJoinDiagnostics diagnostics = ForkJoinDiagnostics.start(pool, 1);
+ *   pool.invoke(new ForkJoinFramework(numbers, threshold, diagnostics.recorder()));
+ *   logger.info("{}", diagnostics.stop());
+ * 
+ * The pool counters are global: if other computations run on the same pool at the same time (which is
+ * likely on the common pool) they are included in the samples too. The recorder only sees its own tasks.
+ */
+public class ForkJoinDiagnostics {
+
+	private static final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "fork-join-diagnostics");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final ForkJoinPool pool;
+	private final WorkStealingRecorder recorder = new WorkStealingRecorder();
+	private final List<Sample> samples = Collections.synchronizedList(new ArrayList<>());
+	private final long startNanos;
+	private final long startSteals;
+	private final ScheduledFuture<?> sampling;
+
+	private ForkJoinDiagnostics(ForkJoinPool pool, long samplePeriodMillis) {
+		this.pool = pool;
+		this.startSteals = pool.getStealCount();
+		this.startNanos = System.nanoTime();
+		this.sampling = sampler.scheduleAtFixedRate(this::sample, 0, samplePeriodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Starts sampling the pool.
+	 * @param pool - The pool running the tasks, ForkJoinPool.commonPool() for parallel streams.
+	 * @param samplePeriodMillis - The sampling period.
+	 */
+	public static ForkJoinDiagnostics start(ForkJoinPool pool, long samplePeriodMillis) {
+		return new ForkJoinDiagnostics(pool, samplePeriodMillis);
+	}
+
+	public static ForkJoinDiagnostics startOnCommonPool(long samplePeriodMillis) {
+		return start(ForkJoinPool.commonPool(), samplePeriodMillis);
+	}
+
+	public WorkStealingRecorder recorder() {
+		return recorder;
+	}
+
+	// The same elements in an instrumented parallel stream.
+	public <T> Stream<T> instrument(Stream<T> stream) {
+		return StreamSupport.stream(new InstrumentedSpliterator<>(stream.spliterator(), recorder), true);
+	}
+
+	public LongStream instrument(LongStream stream) {
+		return StreamSupport.longStream(new InstrumentedSpliterator.OfLong(stream.spliterator(), recorder), true);
+	}
+
+	// Stops sampling and returns the report of the run.
+	public Report stop() {
+		sampling.cancel(false);
+		sample();
+		long wallNanos = System.nanoTime() - startNanos;
+		List<Sample> snapshot;
+		synchronized (samples) {
+			snapshot = new ArrayList<>(samples);
+		}
+		return new Report(pool.getParallelism(), wallNanos, pool.getStealCount() - startSteals, recorder, snapshot);
+	}
+
+	private void sample() {
+		samples.add(new Sample((System.nanoTime() - startNanos) / 1_000_000, pool.getQueuedTaskCount(), 
+				pool.getQueuedSubmissionCount(), pool.getActiveThreadCount(), pool.getRunningThreadCount()));
+	}
+
+	/**
+	 * The state of the pool at a given time since the start of the run.
+	 */
+	public static final class Sample {
+
+		private final long elapsedMillis;
+		private final long queuedTasks;
+		private final int queuedSubmissions;
+		private final int activeThreads;
+		private final int runningThreads;
+
+		private Sample(long elapsedMillis, long queuedTasks, int queuedSubmissions, int activeThreads, int runningThreads) {
+			this.elapsedMillis = elapsedMillis;
+			this.queuedTasks = queuedTasks;
+			this.queuedSubmissions = queuedSubmissions;
+			this.activeThreads = activeThreads;
+			this.runningThreads = runningThreads;
+		}
+
+		public long getElapsedMillis() {
+			return elapsedMillis;
+		}
+
+		public long getQueuedTasks() {
+			return queuedTasks;
+		}
+
+		public int getQueuedSubmissions() {
+			return queuedSubmissions;
+		}
+
+		public int getActiveThreads() {
+			return activeThreads;
+		}
+
+		public int getRunningThreads() {
+			return runningThreads;
+		}
+
+		@Override
+		public String toString() {
+			return elapsedMillis + "ms: " + queuedTasks + " queued, " + activeThreads + " active";
+		}
+
+	}
+
+	/**
+	 * The summary of a run.
+	 */
+	public static final class Report {
+
+		// The timeline in toString() shows at most this number of samples.
+		private static final int TIMELINE_POINTS = 10;
+
+		private final int parallelism;
+		private final long wallNanos;
+		private final long poolSteals;
+		private final WorkStealingRecorder recorder;
+		private final List<Sample> samples;
+
+		private Report(int parallelism, long wallNanos, long poolSteals, WorkStealingRecorder recorder, List<Sample> samples) {
+			this.parallelism = parallelism;
+			this.wallNanos = wallNanos;
+			this.poolSteals = poolSteals;
+			this.recorder = recorder;
+			this.samples = Collections.unmodifiableList(samples);
+		}
+
+		public long getWallNanos() {
+			return wallNanos;
+		}
+
+		// Steals counted by the pool during the run, for all the tasks of the pool.
+		public long getPoolSteals() {
+			return poolSteals;
+		}
+
+		public WorkStealingRecorder getRecorder() {
+			return recorder;
+		}
+
+		public List<Sample> getSamples() {
+			return samples;
+		}
+
+		public long getMaxQueuedTasks() {
+			return samples.stream().mapToLong(Sample::getQueuedTasks).max().orElse(0L);
+		}
+
+		public double getAverageQueuedTasks() {
+			return samples.stream().mapToLong(Sample::getQueuedTasks).average().orElse(0d);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder report = new StringBuilder();
+			report.append(String.format("Run of %.2f ms on a pool with parallelism %d%n", wallNanos / 1e6, parallelism));
+			report.append(String.format("  Tasks: %d forked, %d started, %d stolen (%d steals counted by the pool)%n", 
+					recorder.getForked(), recorder.getStarted(), recorder.getStolen(), poolSteals));
+			report.append(String.format("  Queue depth: max %d, average %.1f over %d samples%n", 
+					getMaxQueuedTasks(), getAverageQueuedTasks(), samples.size()));
+			report.append("  Queue timeline: ");
+			int step = Math.max(1, samples.size() / TIMELINE_POINTS);
+			for (int i = 0; i < samples.size(); i += step) {
+				report.append('[').append(samples.get(i)).append("] ");
+			}
+			report.append(String.format("%n  Leaves: %d, durations:", recorder.getLeaves()));
+			for (Map.Entry<Long, Long> bucket : recorder.getLeafHistogram().entrySet()) {
+				report.append(String.format(" <%s: %d", formatNanos(bucket.getKey()), bucket.getValue()));
+			}
+			report.append(String.format("%n  Workers (busy / idle running leaves):"));
+			for (Map.Entry<String, long[]> worker : recorder.getWorkers().entrySet()) {
+				long busy = worker.getValue()[1];
+				report.append(String.format("%n    %s: %d leaves, busy %.2f ms, idle %.2f ms (%.0f%% busy)", worker.getKey(), 
+						worker.getValue()[0], busy / 1e6, Math.max(wallNanos - busy, 0L) / 1e6, 100d * busy / wallNanos));
+			}
+			return report.toString();
+		}
+
+		private static String formatNanos(long nanos) {
+			if (nanos == Long.MAX_VALUE) {
+				return "inf";
+			}
+			if (nanos < 1_000L) {
+				return nanos + "ns";
+			}
+			if (nanos < 1_000_000L) {
+				return (nanos / 1_000L) + "us";
+			}
+			return (nanos / 1_000_000L) + "ms";
+		}
+
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.objectway.parallel.diagnostics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.parallel.ForkJoinFramework;
+import com.objectway.parallel.SplitThreshold;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Diagnostics of the same sum computed by ForkJoinFramework on a dedicated pool, with a fixed and an
+ * adaptive threshold, and by a parallel stream on the common pool.
+ * Compare the number of forks, the leaf durations and the busy time of the workers.
+ */
+public class ForkJoinDiagnosticsDemo {
+
+	private static final Logger logger = LoggerFactory.getLogger(ForkJoinDiagnosticsDemo.class.getName());
+
+	public static void main(String[] args) {
+		long[] numbers = LongStream.rangeClosed(1, 50_000_000).toArray();
+		ForkJoinPool pool = new ForkJoinPool();
+
+		ForkJoinDiagnostics fixed = ForkJoinDiagnostics.start(pool, 1);
+		long result = pool.invoke(new ForkJoinFramework(numbers, SplitThreshold.fixed((int) ForkJoinFramework.THRESHOLD), 
+				fixed.recorder()));
+		logger.info("ForkJoinFramework with fixed threshold: {}\n{}", result, fixed.stop());
+
+		ForkJoinDiagnostics adaptive = ForkJoinDiagnostics.start(pool, 1);
+		result = pool.invoke(new ForkJoinFramework(numbers, SplitThreshold.forParallelism(numbers.length, pool.getParallelism()), 
+				adaptive.recorder()));
+		logger.info("ForkJoinFramework with adaptive threshold: {}\n{}", result, adaptive.stop());
+
+		ForkJoinDiagnostics stream = ForkJoinDiagnostics.startOnCommonPool(1);
+		result = stream.instrument(LongStream.rangeClosed(1, 50_000_000)).sum();
+		logger.info("Parallel stream on the common pool: {}\n{}", result, stream.stop());
+
+		pool.shutdown();
+	}
+
+}
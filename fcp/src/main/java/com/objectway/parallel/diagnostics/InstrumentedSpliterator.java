@@ -0,0 +1,137 @@
+package com.objectway.parallel.diagnostics;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * A Spliterator that reports to a WorkStealingRecorder what a parallel stream does with it.
+ * Parallel streams fork a new task for every successful trySplit(), so:
+ *   1) every split is recorded as a forked task;
+ *   2) either half of a split (the split-off prefix or the suffix left in the Spliterator) traversed by a
+ *      thread other than the one that split it last has been stolen;
+ *   3) forEachRemaining() is the sequential computation of a leaf and it's timed.
+ * 
+ * Usage: StreamSupport.stream(new InstrumentedSpliterator<>(stream.spliterator(), recorder), true)
+ * or ForkJoinDiagnostics.instrument(...).
+ */
+public class InstrumentedSpliterator<T> implements Spliterator<T> {
+
+	private final Spliterator<T> delegate;
+	protected final WorkStealingRecorder recorder;
+	private Thread forker;
+	private boolean started = false;
+
+	public InstrumentedSpliterator(Spliterator<T> delegate, WorkStealingRecorder recorder) {
+		this(delegate, recorder, null);
+	}
+
+	private InstrumentedSpliterator(Spliterator<T> delegate, WorkStealingRecorder recorder, Thread forker) {
+		this.delegate = delegate;
+		this.recorder = recorder;
+		this.forker = forker;
+	}
+
+	// Records a split by the current thread: the suffix left in this Spliterator can be stolen as well.
+	protected Thread split() {
+		recorder.forked();
+		forker = Thread.currentThread();
+		return forker;
+	}
+
+	// Records the start of the traversal, only once.
+	protected void start() {
+		if (!started) {
+			started = true;
+			recorder.started(forker);
+		}
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action) {
+		start();
+		return delegate.tryAdvance(action);
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action) {
+		start();
+		long leafStart = recorder.leafStarted();
+		delegate.forEachRemaining(action);
+		recorder.leafCompleted(leafStart);
+	}
+
+	@Override
+	public Spliterator<T> trySplit() {
+		Spliterator<T> split = delegate.trySplit();
+		if (split == null) {
+			return null;
+		}
+		return new InstrumentedSpliterator<>(split, recorder, split());
+	}
+
+	@Override
+	public long estimateSize() {
+		return delegate.estimateSize();
+	}
+
+	@Override
+	public long getExactSizeIfKnown() {
+		return delegate.getExactSizeIfKnown();
+	}
+
+	@Override
+	public int characteristics() {
+		return delegate.characteristics();
+	}
+
+	@Override
+	public Comparator<? super T> getComparator() {
+		return delegate.getComparator();
+	}
+
+	/**
+	 * The same for primitive long streams (LongStream.spliterator()).
+	 */
+	public static class OfLong extends InstrumentedSpliterator<Long> implements Spliterator.OfLong {
+
+		private final Spliterator.OfLong delegate;
+
+		public OfLong(Spliterator.OfLong delegate, WorkStealingRecorder recorder) {
+			this(delegate, recorder, null);
+		}
+
+		private OfLong(Spliterator.OfLong delegate, WorkStealingRecorder recorder, Thread forker) {
+			super(delegate, recorder, forker);
+			this.delegate = delegate;
+		}
+
+		@Override
+		public boolean tryAdvance(LongConsumer action) {
+			start();
+			return delegate.tryAdvance(action);
+		}
+
+		@Override
+		public void forEachRemaining(LongConsumer action) {
+			start();
+			long leafStart = recorder.leafStarted();
+			delegate.forEachRemaining(action);
+			recorder.leafCompleted(leafStart);
+		}
+
+		@Override
+		public Spliterator.OfLong trySplit() {
+			Spliterator.OfLong split = delegate.trySplit();
+			if (split == null) {
+				return null;
+			}
+			return new InstrumentedSpliterator.OfLong(split, recorder, split());
+		}
+
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.objectway.parallel.diagnostics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Collects what happens inside the tasks of a single run: how many tasks are forked, how many of them
+ * are executed by a thread other than the one that forked them (stolen), how long the leaves take and
+ * how much time each worker spends running leaves.
+ * 
+ * Tasks call the recorder themselves (see ForkJoinFramework), parallel streams are recorded by wrapping
+ * their Spliterator in an InstrumentedSpliterator. All the methods are thread-safe and cheap: counters are
+ * LongAdders and durations are measured with System.nanoTime() around the leaves only.
+ * 
+ * @see com.objectway.parallel.diagnostics.ForkJoinDiagnostics
+ */
+public class WorkStealingRecorder {
+
+	// A recorder that records nothing, for tasks running without diagnostics.
+	public static final WorkStealingRecorder DISABLED = new WorkStealingRecorder(false);
+
+	// Leaf durations histogram: bucket i counts the leaves lasting [2^(i-1), 2^i) nanoseconds.
+	private static final int BUCKETS = 64;
+
+	private final boolean enabled;
+	private final LongAdder forked = new LongAdder();
+	private final LongAdder started = new LongAdder();
+	private final LongAdder stolen = new LongAdder();
+	private final LongAdder leaves = new LongAdder();
+	private final LongAdder[] histogram = new LongAdder[BUCKETS];
+	private final Map<String, Worker> workers = new ConcurrentHashMap<>();
+
+	public WorkStealingRecorder() {
+		this(true);
+	}
+
+	private WorkStealingRecorder(boolean enabled) {
+		this.enabled = enabled;
+		for (int i = 0; i < BUCKETS; i++) {
+			histogram[i] = new LongAdder();
+		}
+	}
+
+	// To be called right before a fork().
+	public void forked() {
+		if (enabled) {
+			forked.increment();
+		}
+	}
+
+	/**
+	 * To be called when a task starts executing.
+	 * @param forker - The thread that created and forked the task, null for the root task.
+	 */
+	public void started(Thread forker) {
+		if (enabled) {
+			started.increment();
+			if (forker != null && forker != Thread.currentThread()) {
+				stolen.increment();
+			}
+		}
+	}
+
+	// To be called before the sequential computation of a leaf. Returns the start time.
+	public long leafStarted() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	// To be called after the sequential computation of a leaf, with the start time returned by leafStarted().
+	public void leafCompleted(long startNanos) {
+		if (enabled) {
+			long duration = System.nanoTime() - startNanos;
+			leaves.increment();
+			histogram[BUCKETS - Long.numberOfLeadingZeros(Math.max(duration, 1L))].increment();
+			Worker worker = workers.computeIfAbsent(Thread.currentThread().getName(), name -> new Worker());
+			worker.leaves.increment();
+			worker.busyNanos.add(duration);
+		}
+	}
+
+	public long getForked() {
+		return forked.sum();
+	}
+
+	public long getStarted() {
+		return started.sum();
+	}
+
+	public long getStolen() {
+		return stolen.sum();
+	}
+
+	public long getLeaves() {
+		return leaves.sum();
+	}
+
+	/**
+	 * The non empty buckets of the leaf durations histogram: upper bound in nanoseconds -> number of leaves.
+	 */
+	public Map<Long, Long> getLeafHistogram() {
+		Map<Long, Long> buckets = new TreeMap<>();
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = histogram[i].sum();
+			if (count > 0) {
+				buckets.put(i == BUCKETS - 1 ? Long.MAX_VALUE : 1L << i, count);
+			}
+		}
+		return buckets;
+	}
+
+	/**
+	 * Thread name -> {leaves executed, nanoseconds spent running leaves}.
+	 */
+	public Map<String, long[]> getWorkers() {
+		Map<String, long[]> snapshot = new TreeMap<>();
+		workers.forEach((name, worker) -> snapshot.put(name, new long[] { worker.leaves.sum(), worker.busyNanos.sum() }));
+		return snapshot;
+	}
+
+	private static final class Worker {
+		private final LongAdder leaves = new LongAdder();
+		private final LongAdder busyNanos = new LongAdder();
+	}
+
+}
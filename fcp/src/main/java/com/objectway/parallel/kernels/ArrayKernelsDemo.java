@@ -0,0 +1,77 @@
+package com.objectway.parallel.kernels;
+
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.parallel.SplitThreshold;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Compares every parallel kernel with its sequential baseline on big primitive arrays.
+ * Each operation is executed 10 times and the fastest execution is taken, like in
+ * SequentialOrParallelSum.
+ * 
+ * @see com.objectway.parallel.SequentialOrParallelSum
+ */
+public class ArrayKernelsDemo {
+
+	private static final Logger logger = LoggerFactory.getLogger(ArrayKernelsDemo.class.getName());
+
+	private static final int SIZE = 50_000_000;
+
+	public static void main(String[] args) {
+		logger.info("Executing on {} processors, arrays of {} elements.", Runtime.getRuntime().availableProcessors(), SIZE);
+
+		long[] longs = LongStream.rangeClosed(1, SIZE).toArray();
+		compare("long[] sum", () -> LongArrayKernels.sequentialSum(longs), () -> LongArrayKernels.sum(longs));
+
+		// The threshold and the number of tasks chosen for the common pool.
+		SplitThreshold threshold = SplitThreshold.forCurrentPool(longs.length);
+		LongArrayKernels.reduce(longs, 0L, Long::sum, threshold);
+		logger.info("Leaves sized on the common pool: {}", threshold);
+
+		compare("long[] reduce (xor)", () -> LongArrayKernels.sequentialReduce(longs, 0L, (a, b) -> a ^ b),
+				() -> LongArrayKernels.reduce(longs, 0L, (a, b) -> a ^ b));
+		compare("long[] max", () -> LongArrayKernels.sequentialMax(longs), () -> LongArrayKernels.max(longs));
+		compare("long[] argMin", () -> LongArrayKernels.sequentialArgMin(longs), () -> LongArrayKernels.argMin(longs));
+		compare("long[] count (multiples of 3)", () -> LongArrayKernels.sequentialCount(longs, l -> l % 3 == 0),
+				() -> LongArrayKernels.count(longs, l -> l % 3 == 0));
+		compare("long[] map (x * 2 + 1)", () -> { LongArrayKernels.sequentialMap(longs, l -> l * 2 + 1); return longs.length; },
+				() -> { LongArrayKernels.map(longs, l -> l * 2 + 1); return longs.length; });
+
+		int[] ints = IntStream.rangeClosed(1, SIZE).toArray();
+		compare("int[] sum", () -> IntArrayKernels.sequentialSum(ints), () -> IntArrayKernels.sum(ints));
+		compare("int[] argMax", () -> IntArrayKernels.sequentialArgMax(ints), () -> IntArrayKernels.argMax(ints));
+
+		double[] doubles = LongStream.rangeClosed(1, SIZE).mapToDouble(l -> Math.sqrt(l)).toArray();
+		compare("double[] sum", () -> DoubleArrayKernels.sequentialSum(doubles), () -> DoubleArrayKernels.sum(doubles));
+		compare("double[] min", () -> DoubleArrayKernels.sequentialMin(doubles), () -> DoubleArrayKernels.min(doubles));
+		compare("double[] map (log)", () -> { DoubleArrayKernels.sequentialMap(doubles, Math::log); return doubles.length; },
+				() -> { DoubleArrayKernels.map(doubles, Math::log); return doubles.length; });
+	}
+
+	private static void compare(String msg, Supplier<Object> sequential, Supplier<Object> parallel) {
+		long sequentialTime = fastest(sequential);
+		long parallelTime = fastest(parallel);
+		logger.info("{}: sequential {} ms, parallel {} ms, speedup {}x. Result: {}", msg, sequentialTime, parallelTime,
+				String.format("%.2f", sequentialTime / (double) Math.max(parallelTime, 1)), parallel.get());
+	}
+
+	private static long fastest(Supplier<Object> kernel) {
+		long fastest = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++) {
+			long start = System.nanoTime();
+			kernel.get();
+			long duration = (System.nanoTime() - start) / 1_000_000;
+			if (duration < fastest)
+				fastest = duration;
+		}
+		return fastest;
+	}
+
+}
@@ -0,0 +1,164 @@
+package com.objectway.parallel.kernels;
+
+import java.util.OptionalDouble;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleUnaryOperator;
+
+import com.objectway.parallel.SplitThreshold;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Parallel kernels over double[] built on top of RangeTask and the Fork-Join Framework.
+ * Each kernel has a sequential baseline (the same leaf code applied to the whole array)
+ * so that the speedup of the parallel version can be measured.
+ * 
+ * Kernels are invoked with ForkJoinTask.invoke(): when called from a ForkJoinPool worker
+ * they run in that pool, otherwise in the common pool. Leaves are sized on the parallelism of
+ * that pool, map() and reduce() also accept an explicit SplitThreshold.
+ * 
+ * Operators passed to reduce() must be associative and the identity must really be an
+ * identity for the operator (0 for sum, 1 for product, Double.POSITIVE_INFINITY for min, ...).
+ * Keep in mind that floating point addition is associative only up to rounding: a parallel
+ * sum may differ from the sequential one in its last digits.
+ * 
+ * @see com.objectway.parallel.kernels.RangeTask
+ */
+public final class DoubleArrayKernels {
+
+	private DoubleArrayKernels() {
+	}
+
+	// Map in place: array[i] = mapper(array[i])
+	public static void map(double[] array, DoubleUnaryOperator mapper) {
+		map(array, mapper, SplitThreshold.forCurrentPool(array.length));
+	}
+
+	public static void map(double[] array, DoubleUnaryOperator mapper, SplitThreshold threshold) {
+		new RangeTask<Void>(0, array.length, threshold, (s, e) -> mapRange(array, s, e, mapper), (l, r) -> null).invoke();
+	}
+
+	public static void sequentialMap(double[] array, DoubleUnaryOperator mapper) {
+		mapRange(array, 0, array.length, mapper);
+	}
+
+	// Reduction with an associative operator and its identity.
+	public static double reduce(double[] array, double identity, DoubleBinaryOperator op) {
+		return reduce(array, identity, op, SplitThreshold.forCurrentPool(array.length));
+	}
+
+	public static double reduce(double[] array, double identity, DoubleBinaryOperator op, SplitThreshold threshold) {
+		return new RangeTask<>(0, array.length, threshold, (s, e) -> reduceRange(array, s, e, identity, op), 
+				(l, r) -> op.applyAsDouble(l, r)).invoke();
+	}
+
+	public static double sequentialReduce(double[] array, double identity, DoubleBinaryOperator op) {
+		return reduceRange(array, 0, array.length, identity, op);
+	}
+
+	public static double sum(double[] array) {
+		return reduce(array, 0d, Double::sum);
+	}
+
+	public static double sequentialSum(double[] array) {
+		return sequentialReduce(array, 0d, Double::sum);
+	}
+
+	// Minimum and maximum. Empty arrays have no minimum nor maximum.
+	public static OptionalDouble min(double[] array) {
+		return array.length == 0 ? OptionalDouble.empty() : OptionalDouble.of(reduce(array, Double.POSITIVE_INFINITY, Math::min));
+	}
+
+	public static OptionalDouble sequentialMin(double[] array) {
+		return array.length == 0 ? OptionalDouble.empty() : OptionalDouble.of(sequentialReduce(array, Double.POSITIVE_INFINITY, Math::min));
+	}
+
+	public static OptionalDouble max(double[] array) {
+		return array.length == 0 ? OptionalDouble.empty() : OptionalDouble.of(reduce(array, Double.NEGATIVE_INFINITY, Math::max));
+	}
+
+	public static OptionalDouble sequentialMax(double[] array) {
+		return array.length == 0 ? OptionalDouble.empty() : OptionalDouble.of(sequentialReduce(array, Double.NEGATIVE_INFINITY, Math::max));
+	}
+
+	/**
+	 * Index of the minimum element, the lowest index in case of ties. -1 for an empty array.
+	 */
+	public static int argMin(double[] array) {
+		return new RangeTask<>(0, array.length, (s, e) -> argMinRange(array, s, e), 
+				(l, r) -> (l < 0 || (r >= 0 && array[r] < array[l])) ? r : l).invoke();
+	}
+
+	public static int sequentialArgMin(double[] array) {
+		return argMinRange(array, 0, array.length);
+	}
+
+	/**
+	 * Index of the maximum element, the lowest index in case of ties. -1 for an empty array.
+	 */
+	public static int argMax(double[] array) {
+		return new RangeTask<>(0, array.length, (s, e) -> argMaxRange(array, s, e), 
+				(l, r) -> (l < 0 || (r >= 0 && array[r] > array[l])) ? r : l).invoke();
+	}
+
+	public static int sequentialArgMax(double[] array) {
+		return argMaxRange(array, 0, array.length);
+	}
+
+	// Number of elements matching the predicate.
+	public static long count(double[] array, DoublePredicate predicate) {
+		return new RangeTask<>(0, array.length, (s, e) -> countRange(array, s, e, predicate), Long::sum).invoke();
+	}
+
+	public static long sequentialCount(double[] array, DoublePredicate predicate) {
+		return countRange(array, 0, array.length, predicate);
+	}
+
+	// Leaf computations, shared by the parallel and the sequential versions.
+	private static Void mapRange(double[] array, int start, int end, DoubleUnaryOperator mapper) {
+		for (int i = start; i < end; i++) {
+			array[i] = mapper.applyAsDouble(array[i]);
+		}
+		return null;
+	}
+
+	private static double reduceRange(double[] array, int start, int end, double identity, DoubleBinaryOperator op) {
+		double result = identity;
+		for (int i = start; i < end; i++) {
+			result = op.applyAsDouble(result, array[i]);
+		}
+		return result;
+	}
+
+	private static int argMinRange(double[] array, int start, int end) {
+		int index = -1;
+		for (int i = start; i < end; i++) {
+			if (index < 0 || array[i] < array[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	private static int argMaxRange(double[] array, int start, int end) {
+		int index = -1;
+		for (int i = start; i < end; i++) {
+			if (index < 0 || array[i] > array[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	private static long countRange(double[] array, int start, int end, DoublePredicate predicate) {
+		long count = 0;
+		for (int i = start; i < end; i++) {
+			if (predicate.test(array[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,171 @@
+package com.objectway.parallel.kernels;
+
+import java.util.OptionalInt;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+import com.objectway.parallel.SplitThreshold;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Parallel kernels over int[] built on top of RangeTask and the Fork-Join Framework.
+ * Each kernel has a sequential baseline (the same leaf code applied to the whole array)
+ * so that the speedup of the parallel version can be measured.
+ * 
+ * Kernels are invoked with ForkJoinTask.invoke(): when called from a ForkJoinPool worker
+ * they run in that pool, otherwise in the common pool. Leaves are sized on the parallelism of
+ * that pool, map() and reduce() also accept an explicit SplitThreshold.
+ * 
+ * Operators passed to reduce() must be associative and the identity must really be an
+ * identity for the operator (0 for sum, 1 for product, Integer.MAX_VALUE for min, ...).
+ * 
+ * @see com.objectway.parallel.kernels.RangeTask
+ */
+public final class IntArrayKernels {
+
+	private IntArrayKernels() {
+	}
+
+	// Map in place: array[i] = mapper(array[i])
+	public static void map(int[] array, IntUnaryOperator mapper) {
+		map(array, mapper, SplitThreshold.forCurrentPool(array.length));
+	}
+
+	public static void map(int[] array, IntUnaryOperator mapper, SplitThreshold threshold) {
+		new RangeTask<Void>(0, array.length, threshold, (s, e) -> mapRange(array, s, e, mapper), (l, r) -> null).invoke();
+	}
+
+	public static void sequentialMap(int[] array, IntUnaryOperator mapper) {
+		mapRange(array, 0, array.length, mapper);
+	}
+
+	// Reduction with an associative operator and its identity.
+	public static int reduce(int[] array, int identity, IntBinaryOperator op) {
+		return reduce(array, identity, op, SplitThreshold.forCurrentPool(array.length));
+	}
+
+	public static int reduce(int[] array, int identity, IntBinaryOperator op, SplitThreshold threshold) {
+		return new RangeTask<>(0, array.length, threshold, (s, e) -> reduceRange(array, s, e, identity, op), 
+				(l, r) -> op.applyAsInt(l, r)).invoke();
+	}
+
+	public static int sequentialReduce(int[] array, int identity, IntBinaryOperator op) {
+		return reduceRange(array, 0, array.length, identity, op);
+	}
+
+	// The sum of an int[] is accumulated in a long, so it doesn't overflow on big arrays.
+	public static long sum(int[] array) {
+		return new RangeTask<>(0, array.length, (s, e) -> sumRange(array, s, e), Long::sum).invoke();
+	}
+
+	public static long sequentialSum(int[] array) {
+		return sumRange(array, 0, array.length);
+	}
+
+	// Minimum and maximum. Empty arrays have no minimum nor maximum.
+	public static OptionalInt min(int[] array) {
+		return array.length == 0 ? OptionalInt.empty() : OptionalInt.of(reduce(array, Integer.MAX_VALUE, Math::min));
+	}
+
+	public static OptionalInt sequentialMin(int[] array) {
+		return array.length == 0 ? OptionalInt.empty() : OptionalInt.of(sequentialReduce(array, Integer.MAX_VALUE, Math::min));
+	}
+
+	public static OptionalInt max(int[] array) {
+		return array.length == 0 ? OptionalInt.empty() : OptionalInt.of(reduce(array, Integer.MIN_VALUE, Math::max));
+	}
+
+	public static OptionalInt sequentialMax(int[] array) {
+		return array.length == 0 ? OptionalInt.empty() : OptionalInt.of(sequentialReduce(array, Integer.MIN_VALUE, Math::max));
+	}
+
+	/**
+	 * Index of the minimum element, the lowest index in case of ties. -1 for an empty array.
+	 */
+	public static int argMin(int[] array) {
+		return new RangeTask<>(0, array.length, (s, e) -> argMinRange(array, s, e), 
+				(l, r) -> (l < 0 || (r >= 0 && array[r] < array[l])) ? r : l).invoke();
+	}
+
+	public static int sequentialArgMin(int[] array) {
+		return argMinRange(array, 0, array.length);
+	}
+
+	/**
+	 * Index of the maximum element, the lowest index in case of ties. -1 for an empty array.
+	 */
+	public static int argMax(int[] array) {
+		return new RangeTask<>(0, array.length, (s, e) -> argMaxRange(array, s, e), 
+				(l, r) -> (l < 0 || (r >= 0 && array[r] > array[l])) ? r : l).invoke();
+	}
+
+	public static int sequentialArgMax(int[] array) {
+		return argMaxRange(array, 0, array.length);
+	}
+
+	// Number of elements matching the predicate.
+	public static long count(int[] array, IntPredicate predicate) {
+		return new RangeTask<>(0, array.length, (s, e) -> countRange(array, s, e, predicate), Long::sum).invoke();
+	}
+
+	public static long sequentialCount(int[] array, IntPredicate predicate) {
+		return countRange(array, 0, array.length, predicate);
+	}
+
+	// Leaf computations, shared by the parallel and the sequential versions.
+	private static Void mapRange(int[] array, int start, int end, IntUnaryOperator mapper) {
+		for (int i = start; i < end; i++) {
+			array[i] = mapper.applyAsInt(array[i]);
+		}
+		return null;
+	}
+
+	private static int reduceRange(int[] array, int start, int end, int identity, IntBinaryOperator op) {
+		int result = identity;
+		for (int i = start; i < end; i++) {
+			result = op.applyAsInt(result, array[i]);
+		}
+		return result;
+	}
+
+	private static long sumRange(int[] array, int start, int end) {
+		long sum = 0;
+		for (int i = start; i < end; i++) {
+			sum += array[i];
+		}
+		return sum;
+	}
+
+	private static int argMinRange(int[] array, int start, int end) {
+		int index = -1;
+		for (int i = start; i < end; i++) {
+			if (index < 0 || array[i] < array[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	private static int argMaxRange(int[] array, int start, int end) {
+		int index = -1;
+		for (int i = start; i < end; i++) {
+			if (index < 0 || array[i] > array[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	private static long countRange(int[] array, int start, int end, IntPredicate predicate) {
+		long count = 0;
+		for (int i = start; i < end; i++) {
+			if (predicate.test(array[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.objectway.parallel.kernels;
+
+import java.util.OptionalLong;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+import com.objectway.parallel.SplitThreshold;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Parallel kernels over long[] built on top of RangeTask and the Fork-Join Framework.
+ * Each kernel has a sequential baseline (the same leaf code applied to the whole array)
+ * so that the speedup of the parallel version can be measured.
+ * 
+ * Kernels are invoked with ForkJoinTask.invoke(): when called from a ForkJoinPool worker
+ * they run in that pool, otherwise in the common pool. Leaves are sized on the parallelism of
+ * that pool, map() and reduce() also accept an explicit SplitThreshold.
+ * 
+ * Operators passed to reduce() must be associative and the identity must really be an
+ * identity for the operator (0 for sum, 1 for product, Long.MAX_VALUE for min, ...).
+ * 
+ * @see com.objectway.parallel.kernels.RangeTask
+ */
+public final class LongArrayKernels {
+
+	private LongArrayKernels() {
+	}
+
+	// Map in place: array[i] = mapper(array[i])
+	public static void map(long[] array, LongUnaryOperator mapper) {
+		map(array, mapper, SplitThreshold.forCurrentPool(array.length));
+	}
+
+	public static void map(long[] array, LongUnaryOperator mapper, SplitThreshold threshold) {
+		new RangeTask<Void>(0, array.length, threshold, (s, e) -> mapRange(array, s, e, mapper), (l, r) -> null).invoke();
+	}
+
+	public static void sequentialMap(long[] array, LongUnaryOperator mapper) {
+		mapRange(array, 0, array.length, mapper);
+	}
+
+	// Reduction with an associative operator and its identity.
+	public static long reduce(long[] array, long identity, LongBinaryOperator op) {
+		return reduce(array, identity, op, SplitThreshold.forCurrentPool(array.length));
+	}
+
+	public static long reduce(long[] array, long identity, LongBinaryOperator op, SplitThreshold threshold) {
+		return new RangeTask<>(0, array.length, threshold, (s, e) -> reduceRange(array, s, e, identity, op), 
+				(l, r) -> op.applyAsLong(l, r)).invoke();
+	}
+
+	public static long sequentialReduce(long[] array, long identity, LongBinaryOperator op) {
+		return reduceRange(array, 0, array.length, identity, op);
+	}
+
+	public static long sum(long[] array) {
+		return reduce(array, 0L, Long::sum);
+	}
+
+	public static long sequentialSum(long[] array) {
+		return sequentialReduce(array, 0L, Long::sum);
+	}
+
+	// Minimum and maximum. Empty arrays have no minimum nor maximum.
+	public static OptionalLong min(long[] array) {
+		return array.length == 0 ? OptionalLong.empty() : OptionalLong.of(reduce(array, Long.MAX_VALUE, Math::min));
+	}
+
+	public static OptionalLong sequentialMin(long[] array) {
+		return array.length == 0 ? OptionalLong.empty() : OptionalLong.of(sequentialReduce(array, Long.MAX_VALUE, Math::min));
+	}
+
+	public static OptionalLong max(long[] array) {
+		return array.length == 0 ? OptionalLong.empty() : OptionalLong.of(reduce(array, Long.MIN_VALUE, Math::max));
+	}
+
+	public static OptionalLong sequentialMax(long[] array) {
+		return array.length == 0 ? OptionalLong.empty() : OptionalLong.of(sequentialReduce(array, Long.MIN_VALUE, Math::max));
+	}
+
+	/**
+	 * Index of the minimum element, the lowest index in case of ties. -1 for an empty array.
+	 */
+	public static int argMin(long[] array) {
+		return new RangeTask<>(0, array.length, (s, e) -> argMinRange(array, s, e), 
+				(l, r) -> (l < 0 || (r >= 0 && array[r] < array[l])) ? r : l).invoke();
+	}
+
+	public static int sequentialArgMin(long[] array) {
+		return argMinRange(array, 0, array.length);
+	}
+
+	/**
+	 * Index of the maximum element, the lowest index in case of ties. -1 for an empty array.
+	 */
+	public static int argMax(long[] array) {
+		return new RangeTask<>(0, array.length, (s, e) -> argMaxRange(array, s, e), 
+				(l, r) -> (l < 0 || (r >= 0 && array[r] > array[l])) ? r : l).invoke();
+	}
+
+	public static int sequentialArgMax(long[] array) {
+		return argMaxRange(array, 0, array.length);
+	}
+
+	// Number of elements matching the predicate.
+	public static long count(long[] array, LongPredicate predicate) {
+		return new RangeTask<>(0, array.length, (s, e) -> countRange(array, s, e, predicate), Long::sum).invoke();
+	}
+
+	public static long sequentialCount(long[] array, LongPredicate predicate) {
+		return countRange(array, 0, array.length, predicate);
+	}
+
+	// Leaf computations, shared by the parallel and the sequential versions.
+	private static Void mapRange(long[] array, int start, int end, LongUnaryOperator mapper) {
+		for (int i = start; i < end; i++) {
+			array[i] = mapper.applyAsLong(array[i]);
+		}
+		return null;
+	}
+
+	private static long reduceRange(long[] array, int start, int end, long identity, LongBinaryOperator op) {
+		long result = identity;
+		for (int i = start; i < end; i++) {
+			result = op.applyAsLong(result, array[i]);
+		}
+		return result;
+	}
+
+	private static int argMinRange(long[] array, int start, int end) {
+		int index = -1;
+		for (int i = start; i < end; i++) {
+			if (index < 0 || array[i] < array[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	private static int argMaxRange(long[] array, int start, int end) {
+		int index = -1;
+		for (int i = start; i < end; i++) {
+			if (index < 0 || array[i] > array[index]) {
+				index = i;
+			}
+		}
+		return index;
+	}
+
+	private static long countRange(long[] array, int start, int end, LongPredicate predicate) {
+		long count = 0;
+		for (int i = start; i < end; i++) {
+			if (predicate.test(array[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.objectway.parallel.kernels;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+import com.objectway.parallel.SplitThreshold;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * A general purpose RecursiveTask working on an index range [start, end) of an array.
+ * ForkJoinFramework hard-codes the sum of a long[] into its compute() method: here the work done
+ * on a leaf range is described by a RangeFunction and the results of the two halves are merged
+ * by a combiner. This way every new parallel operation over an array is just a pair of lambdas
+ * and it doesn't need its own RecursiveTask subclass.
+ * 
+ * The combiner must be associative, because the shape of the splitting tree is not fixed.
+ * Tasks producing no result (like in-place mapping) can use RangeTask<Void> returning null.
+ * 
+ * When no threshold is given, leaves are sized on the parallelism of the pool running the caller.
+ * 
+ * @see com.objectway.parallel.ForkJoinFramework
+ * @see com.objectway.parallel.SplitThreshold
+ */
+public class RangeTask<R> extends RecursiveTask<R> {
+
+	private static final long serialVersionUID = 2791034513357043826L;
+
+	/**
+	 * The sequential work done on a leaf range [start, end).
+	 */
+	@FunctionalInterface
+	public interface RangeFunction<R> {
+		R apply(int start, int end);
+	}
+
+	private final RangeFunction<R> leaf;
+	private final BinaryOperator<R> combiner;
+	private final int start;
+	private final int end;
+	private final SplitThreshold threshold;
+
+	// Constructors.
+	public RangeTask(int start, int end, RangeFunction<R> leaf, BinaryOperator<R> combiner) {
+		this(start, end, SplitThreshold.forCurrentPool(end - start), leaf, combiner);
+	}
+
+	public RangeTask(int start, int end, int threshold, RangeFunction<R> leaf, BinaryOperator<R> combiner) {
+		this(start, end, SplitThreshold.fixed(threshold), leaf, combiner);
+	}
+
+	public RangeTask(int start, int end, SplitThreshold threshold, RangeFunction<R> leaf, BinaryOperator<R> combiner) {
+		if (start > end) {
+			throw new IllegalArgumentException("Invalid range [" + start + ", " + end + ")");
+		}
+		this.start = start;
+		this.end = end;
+		this.threshold = threshold;
+		this.leaf = leaf;
+		this.combiner = combiner;
+	}
+
+	@Override
+	protected R compute() {
+		int length = end - start;
+		if (!threshold.split(length)) {
+			return leaf.apply(start, end);
+		}
+
+		int middle = start + length / 2;
+		RangeTask<R> leftTask = new RangeTask<>(start, middle, threshold, leaf, combiner);
+		leftTask.fork();
+
+		RangeTask<R> rightTask = new RangeTask<>(middle, end, threshold, leaf, combiner);
+		R rightResult = rightTask.compute();
+		R leftResult = leftTask.join();
+
+		// Left comes first: combiners can rely on the encounter order of the array.
+		return combiner.apply(leftResult, rightResult);
+	}
+
+	public SplitThreshold getThreshold() {
+		return threshold;
+	}
+
+}
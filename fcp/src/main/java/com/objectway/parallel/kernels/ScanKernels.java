@@ -0,0 +1,387 @@
+package com.objectway.parallel.kernels;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
+import java.util.function.IntConsumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongPredicate;
+
+import com.objectway.parallel.SplitThreshold;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Parallel prefix scans (running totals) and stream compaction (filtering into an array of the right size)
+ * over long[] and double[]. A scan looks sequential in nature, because every element depends on the 
+ * previous one, but with an associative operator it can be computed in three passes:
+ *   1) The array is cut in blocks and every block is reduced, in parallel.
+ *   2) The block reductions are scanned sequentially: there are only a few of them. The result is the
+ *      offset of each block, the reduction of all the elements coming before it.
+ *   3) Every block is scanned starting from its offset, in parallel.
+ * Each element is read twice, so on a single core the sequential scan is faster.
+ * 
+ * Filtering uses the same idea (count, then scatter): every block counts its matching elements, the
+ * counts are scanned to get the position of each block in the output, then every block copies its
+ * elements. No intermediate lists and no resizing.
+ * 
+ * Blocks are sized on the parallelism of the pool running the caller, or of the common pool.
+ * 
+ * @see java.util.Arrays#parallelPrefix(long[], LongBinaryOperator)
+ */
+public final class ScanKernels {
+
+	private ScanKernels() {
+	}
+
+	/**
+	 * result[i] = array[0] op array[1] op ... op array[i]
+	 */
+	public static long[] inclusiveScan(long[] array, LongBinaryOperator op) {
+		long[] result = new long[array.length];
+		if (array.length == 0) {
+			return result;
+		}
+		int blockSize = blockSize(array.length);
+		int blocks = blocks(array.length, blockSize);
+
+		// 1) Block reductions.
+		long[] offsets = new long[blocks];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			long acc = array[start];
+			for (int i = start + 1; i < end; i++) {
+				acc = op.applyAsLong(acc, array[i]);
+			}
+			offsets[b] = acc;
+		});
+
+		// 2) Offsets: offsets[b] becomes the reduction of the blocks before b (undefined for the first block).
+		long previous = offsets[0];
+		for (int b = 1; b < blocks; b++) {
+			long blockReduction = offsets[b];
+			offsets[b] = previous;
+			previous = op.applyAsLong(previous, blockReduction);
+		}
+
+		// 3) Scan of each block from its offset.
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			long acc = b == 0 ? array[start] : op.applyAsLong(offsets[b], array[start]);
+			result[start] = acc;
+			for (int i = start + 1; i < end; i++) {
+				acc = op.applyAsLong(acc, array[i]);
+				result[i] = acc;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * result[0] = identity, result[i] = identity op array[0] op ... op array[i - 1]
+	 */
+	public static long[] exclusiveScan(long[] array, long identity, LongBinaryOperator op) {
+		long[] result = new long[array.length];
+		if (array.length == 0) {
+			return result;
+		}
+		int blockSize = blockSize(array.length);
+		int blocks = blocks(array.length, blockSize);
+
+		long[] offsets = new long[blocks];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			long acc = identity;
+			for (int i = start; i < end; i++) {
+				acc = op.applyAsLong(acc, array[i]);
+			}
+			offsets[b] = acc;
+		});
+
+		long previous = identity;
+		for (int b = 0; b < blocks; b++) {
+			long blockReduction = offsets[b];
+			offsets[b] = previous;
+			previous = op.applyAsLong(previous, blockReduction);
+		}
+
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			long acc = offsets[b];
+			for (int i = start; i < end; i++) {
+				result[i] = acc;
+				acc = op.applyAsLong(acc, array[i]);
+			}
+		});
+		return result;
+	}
+
+	public static long[] sequentialInclusiveScan(long[] array, LongBinaryOperator op) {
+		long[] result = new long[array.length];
+		if (array.length == 0) {
+			return result;
+		}
+		long acc = array[0];
+		result[0] = acc;
+		for (int i = 1; i < array.length; i++) {
+			acc = op.applyAsLong(acc, array[i]);
+			result[i] = acc;
+		}
+		return result;
+	}
+
+	public static long[] sequentialExclusiveScan(long[] array, long identity, LongBinaryOperator op) {
+		long[] result = new long[array.length];
+		long acc = identity;
+		for (int i = 0; i < array.length; i++) {
+			result[i] = acc;
+			acc = op.applyAsLong(acc, array[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * The elements matching the predicate, in their original order.
+	 */
+	public static long[] filter(long[] array, LongPredicate predicate) {
+		int blockSize = blockSize(array.length);
+		int blocks = blocks(array.length, blockSize);
+
+		// Count...
+		int[] positions = new int[blocks];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			int count = 0;
+			for (int i = start; i < end; i++) {
+				if (predicate.test(array[i])) {
+					count++;
+				}
+			}
+			positions[b] = count;
+		});
+		int size = toPositions(positions);
+
+		// ... then scatter.
+		long[] result = new long[size];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			int position = positions[b];
+			for (int i = start; i < end; i++) {
+				if (predicate.test(array[i])) {
+					result[position++] = array[i];
+				}
+			}
+		});
+		return result;
+	}
+
+	public static long[] sequentialFilter(long[] array, LongPredicate predicate) {
+		int count = 0;
+		for (long value : array) {
+			if (predicate.test(value)) {
+				count++;
+			}
+		}
+		long[] result = new long[count];
+		int position = 0;
+		for (long value : array) {
+			if (predicate.test(value)) {
+				result[position++] = value;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * result[i] = array[0] op array[1] op ... op array[i]
+	 * Floating point operators are associative only up to rounding: the result may differ from
+	 * the sequential scan in the last digits.
+	 */
+	public static double[] inclusiveScan(double[] array, DoubleBinaryOperator op) {
+		double[] result = new double[array.length];
+		if (array.length == 0) {
+			return result;
+		}
+		int blockSize = blockSize(array.length);
+		int blocks = blocks(array.length, blockSize);
+
+		double[] offsets = new double[blocks];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			double acc = array[start];
+			for (int i = start + 1; i < end; i++) {
+				acc = op.applyAsDouble(acc, array[i]);
+			}
+			offsets[b] = acc;
+		});
+
+		double previous = offsets[0];
+		for (int b = 1; b < blocks; b++) {
+			double blockReduction = offsets[b];
+			offsets[b] = previous;
+			previous = op.applyAsDouble(previous, blockReduction);
+		}
+
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			double acc = b == 0 ? array[start] : op.applyAsDouble(offsets[b], array[start]);
+			result[start] = acc;
+			for (int i = start + 1; i < end; i++) {
+				acc = op.applyAsDouble(acc, array[i]);
+				result[i] = acc;
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * result[0] = identity, result[i] = identity op array[0] op ... op array[i - 1]
+	 */
+	public static double[] exclusiveScan(double[] array, double identity, DoubleBinaryOperator op) {
+		double[] result = new double[array.length];
+		if (array.length == 0) {
+			return result;
+		}
+		int blockSize = blockSize(array.length);
+		int blocks = blocks(array.length, blockSize);
+
+		double[] offsets = new double[blocks];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			double acc = identity;
+			for (int i = start; i < end; i++) {
+				acc = op.applyAsDouble(acc, array[i]);
+			}
+			offsets[b] = acc;
+		});
+
+		double previous = identity;
+		for (int b = 0; b < blocks; b++) {
+			double blockReduction = offsets[b];
+			offsets[b] = previous;
+			previous = op.applyAsDouble(previous, blockReduction);
+		}
+
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			double acc = offsets[b];
+			for (int i = start; i < end; i++) {
+				result[i] = acc;
+				acc = op.applyAsDouble(acc, array[i]);
+			}
+		});
+		return result;
+	}
+
+	public static double[] sequentialInclusiveScan(double[] array, DoubleBinaryOperator op) {
+		double[] result = new double[array.length];
+		if (array.length == 0) {
+			return result;
+		}
+		double acc = array[0];
+		result[0] = acc;
+		for (int i = 1; i < array.length; i++) {
+			acc = op.applyAsDouble(acc, array[i]);
+			result[i] = acc;
+		}
+		return result;
+	}
+
+	public static double[] sequentialExclusiveScan(double[] array, double identity, DoubleBinaryOperator op) {
+		double[] result = new double[array.length];
+		double acc = identity;
+		for (int i = 0; i < array.length; i++) {
+			result[i] = acc;
+			acc = op.applyAsDouble(acc, array[i]);
+		}
+		return result;
+	}
+
+	public static double[] filter(double[] array, DoublePredicate predicate) {
+		int blockSize = blockSize(array.length);
+		int blocks = blocks(array.length, blockSize);
+
+		int[] positions = new int[blocks];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			int count = 0;
+			for (int i = start; i < end; i++) {
+				if (predicate.test(array[i])) {
+					count++;
+				}
+			}
+			positions[b] = count;
+		});
+		int size = toPositions(positions);
+
+		double[] result = new double[size];
+		forEachBlock(blocks, b -> {
+			int start = b * blockSize;
+			int end = Math.min(start + blockSize, array.length);
+			int position = positions[b];
+			for (int i = start; i < end; i++) {
+				if (predicate.test(array[i])) {
+					result[position++] = array[i];
+				}
+			}
+		});
+		return result;
+	}
+
+	public static double[] sequentialFilter(double[] array, DoublePredicate predicate) {
+		int count = 0;
+		for (double value : array) {
+			if (predicate.test(value)) {
+				count++;
+			}
+		}
+		double[] result = new double[count];
+		int position = 0;
+		for (double value : array) {
+			if (predicate.test(value)) {
+				result[position++] = value;
+			}
+		}
+		return result;
+	}
+
+	// Exclusive scan of the block counts, in place. Returns the total.
+	private static int toPositions(int[] counts) {
+		int total = 0;
+		for (int b = 0; b < counts.length; b++) {
+			int count = counts[b];
+			counts[b] = total;
+			total += count;
+		}
+		return total;
+	}
+
+	private static int blockSize(int length) {
+		return SplitThreshold.forCurrentPool(length).getThreshold();
+	}
+
+	private static int blocks(int length, int blockSize) {
+		return (int) (((long) length + blockSize - 1) / blockSize);
+	}
+
+	// Runs the body for every block index, one block per leaf task.
+	private static void forEachBlock(int blocks, IntConsumer body) {
+		new RangeTask<Void>(0, blocks, 1, (s, e) -> {
+			for (int b = s; b < e; b++) {
+				body.accept(b);
+			}
+			return null;
+		}, (l, r) -> null).invoke();
+	}
+
+}
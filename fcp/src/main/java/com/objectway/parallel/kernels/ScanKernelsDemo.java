@@ -0,0 +1,55 @@
+package com.objectway.parallel.kernels;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.model.Transaction;
+import com.objectway.streams.exercises.helpers.TradingCreator;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Running totals and filtering over the values of a big list of transactions, sequential and parallel.
+ * 
+ * @see com.objectway.parallel.kernels.ScanKernels
+ */
+public class ScanKernelsDemo {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScanKernelsDemo.class.getName());
+
+	public static void main(String[] args) {
+		List<Transaction> transactions = TradingCreator.getTransactions(5_000_000);
+		long[] values = transactions.stream().mapToLong(Transaction::getValue).toArray();
+
+		long start = System.nanoTime();
+		long[] sequentialTotals = ScanKernels.sequentialInclusiveScan(values, Long::sum);
+		long sequentialTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long[] runningTotals = ScanKernels.inclusiveScan(values, Long::sum);
+		long parallelTime = System.nanoTime() - start;
+
+		logger.info("Running totals: sequential {} ms, parallel {} ms, same result: {}. Grand total: {}", 
+				sequentialTime / 1_000_000, parallelTime / 1_000_000, Arrays.equals(sequentialTotals, runningTotals), 
+				runningTotals[runningTotals.length - 1]);
+
+		// The highest value seen so far, with Math::max as operator.
+		long[] runningMax = ScanKernels.inclusiveScan(values, Math::max);
+		logger.info("Running maximum after 10 transactions: {}", Arrays.toString(Arrays.copyOf(runningMax, 10)));
+
+		start = System.nanoTime();
+		long[] bigSequential = ScanKernels.sequentialFilter(values, v -> v > 9_000);
+		sequentialTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		long[] big = ScanKernels.filter(values, v -> v > 9_000);
+		parallelTime = System.nanoTime() - start;
+
+		logger.info("Transactions over 9000: {}. Filtering: sequential {} ms, parallel {} ms, same result: {}", 
+				big.length, sequentialTime / 1_000_000, parallelTime / 1_000_000, Arrays.equals(bigSequential, big));
+	}
+
+}
@@ -0,0 +1,132 @@
+package com.objectway.parallel.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+
+import com.objectway.parallel.kernels.RangeTask;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Parallel reductions over LongBuffer / DoubleBuffer views and over files of raw longs or doubles.
+ * An array in the heap is limited to about 2^31 elements and needs a heap as big as the data:
+ * a memory-mapped file has none of these limits, the operating system pages the data in and out.
+ * 
+ * Files are reduced region by region (see MappedRegionTask) and every region is reduced in parallel
+ * with absolute get() calls on its buffer view, which are safe to use from many threads because
+ * they don't move the buffer position.
+ * 
+ * The default byte order of the files is the Java one (big endian), the same used by DataOutputStream.
+ * 
+ * @see com.objectway.parallel.mapped.MappedRegionTask
+ */
+public final class MappedReductions {
+
+	// The size of a mapped region: 64 MB, 8M longs or doubles.
+	public static final long REGION_SIZE = 64L * 1024 * 1024;
+
+	private MappedReductions() {
+	}
+
+	// Reductions over buffers. The elements between position and limit are reduced.
+	public static long reduce(LongBuffer buffer, long identity, LongBinaryOperator op) {
+		int position = buffer.position();
+		return new RangeTask<>(position, buffer.limit(), (s, e) -> {
+			long result = identity;
+			for (int i = s; i < e; i++) {
+				result = op.applyAsLong(result, buffer.get(i));
+			}
+			return result;
+		}, (l, r) -> op.applyAsLong(l, r)).invoke();
+	}
+
+	public static double reduce(DoubleBuffer buffer, double identity, DoubleBinaryOperator op) {
+		int position = buffer.position();
+		return new RangeTask<>(position, buffer.limit(), (s, e) -> {
+			double result = identity;
+			for (int i = s; i < e; i++) {
+				result = op.applyAsDouble(result, buffer.get(i));
+			}
+			return result;
+		}, (l, r) -> op.applyAsDouble(l, r)).invoke();
+	}
+
+	// Reductions over files of raw longs.
+	public static long reduceLongs(Path file, long identity, LongBinaryOperator op) throws IOException {
+		return reduceLongs(file, ByteOrder.BIG_ENDIAN, identity, op);
+	}
+
+	public static long reduceLongs(Path file, ByteOrder order, long identity, LongBinaryOperator op) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = elementsSize(channel.size(), Long.BYTES);
+			return invoke(new MappedRegionTask<>(channel, 0, size, REGION_SIZE, 
+					region -> reduce(region.order(order).asLongBuffer(), identity, op), (l, r) -> op.applyAsLong(l, r)));
+		}
+	}
+
+	public static long sumLongs(Path file) throws IOException {
+		return reduceLongs(file, 0L, Long::sum);
+	}
+
+	// Reductions over files of raw doubles.
+	public static double reduceDoubles(Path file, double identity, DoubleBinaryOperator op) throws IOException {
+		return reduceDoubles(file, ByteOrder.BIG_ENDIAN, identity, op);
+	}
+
+	public static double reduceDoubles(Path file, ByteOrder order, double identity, DoubleBinaryOperator op) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = elementsSize(channel.size(), Double.BYTES);
+			return invoke(new MappedRegionTask<>(channel, 0, size, REGION_SIZE, 
+					region -> reduce(region.order(order).asDoubleBuffer(), identity, op), (l, r) -> op.applyAsDouble(l, r)));
+		}
+	}
+
+	public static double sumDoubles(Path file) throws IOException {
+		return reduceDoubles(file, 0d, Double::sum);
+	}
+
+	/**
+	 * Writes count longs to a file, the i-th element (starting from 0) is generator(i).
+	 * Written region by region through a memory mapping, so that big test files don't need a big heap either.
+	 */
+	public static void writeLongs(Path file, long count, LongUnaryOperator generator) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			long size = count * Long.BYTES;
+			long index = 0;
+			for (long offset = 0; offset < size; offset += REGION_SIZE) {
+				MappedByteBuffer region = channel.map(MapMode.READ_WRITE, offset, Math.min(REGION_SIZE, size - offset));
+				LongBuffer longs = region.asLongBuffer();
+				while (longs.hasRemaining()) {
+					longs.put(generator.applyAsLong(index++));
+				}
+				region.force();
+			}
+		}
+	}
+
+	// Trailing bytes not forming a whole element are ignored.
+	private static long elementsSize(long fileSize, int elementBytes) {
+		return fileSize - fileSize % elementBytes;
+	}
+
+	private static <R> R invoke(MappedRegionTask<R> task) throws IOException {
+		try {
+			return task.invoke();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+}
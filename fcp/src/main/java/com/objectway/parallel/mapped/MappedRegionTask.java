@@ -0,0 +1,87 @@
+package com.objectway.parallel.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * A RecursiveTask working on a byte range of a file instead of an array in the heap.
+ * The range is split on region boundaries (multiples of regionSize bytes) until a single region
+ * is left. Only then the region is memory-mapped and handed to the leaf function: the file
+ * content never enters the Java heap, and files bigger than 2 GB (the maximum size of a single
+ * mapping) are handled region by region.
+ * 
+ * Mapped regions are released by the garbage collector when the buffers become unreachable.
+ */
+public class MappedRegionTask<R> extends RecursiveTask<R> {
+
+	private static final long serialVersionUID = -3470718012358196371L;
+
+	private final FileChannel channel;
+	private final long start;
+	private final long end;
+	private final long regionSize;
+	private final Function<MappedByteBuffer, R> leaf;
+	private final BinaryOperator<R> combiner;
+
+	/**
+	 * @param channel - The channel of the file, opened for reading.
+	 * @param start - The first byte of the range.
+	 * @param end - The end of the range (excluded).
+	 * @param regionSize - The size of a region. Must be a multiple of the size of the elements in the file.
+	 * @param leaf - The computation on a single mapped region.
+	 * @param combiner - Merges the results of two adjacent ranges. Must be associative.
+	 */
+	public MappedRegionTask(FileChannel channel, long start, long end, long regionSize, 
+			Function<MappedByteBuffer, R> leaf, BinaryOperator<R> combiner) {
+		if (start > end) {
+			throw new IllegalArgumentException("Invalid range [" + start + ", " + end + ")");
+		}
+		if (regionSize < 1 || regionSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid region size: " + regionSize);
+		}
+		this.channel = channel;
+		this.start = start;
+		this.end = end;
+		this.regionSize = regionSize;
+		this.leaf = leaf;
+		this.combiner = combiner;
+	}
+
+	@Override
+	protected R compute() {
+		long length = end - start;
+		if (length <= regionSize) {
+			return leaf.apply(map());
+		}
+
+		// Split in the middle, rounded to a region boundary.
+		long regions = (length + regionSize - 1) / regionSize;
+		long middle = start + (regions / 2) * regionSize;
+
+		MappedRegionTask<R> leftTask = new MappedRegionTask<>(channel, start, middle, regionSize, leaf, combiner);
+		leftTask.fork();
+
+		MappedRegionTask<R> rightTask = new MappedRegionTask<>(channel, middle, end, regionSize, leaf, combiner);
+		R rightResult = rightTask.compute();
+		R leftResult = leftTask.join();
+
+		return combiner.apply(leftResult, rightResult);
+	}
+
+	private MappedByteBuffer map() {
+		try {
+			return channel.map(MapMode.READ_ONLY, start, end - start);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot map region [" + start + ", " + end + ")", e);
+		}
+	}
+
+}
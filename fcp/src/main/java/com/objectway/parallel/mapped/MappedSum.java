@@ -0,0 +1,49 @@
+package com.objectway.parallel.mapped;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * The same sum of the first n numbers of SequentialOrParallelSum and ForkJoinFramework, but the numbers
+ * are read from a memory-mapped file instead of a long[] built with LongStream.rangeClosed(...).toArray().
+ * The heap needed doesn't depend on n anymore, and n can go well over 2^31.
+ * Usage: java -cp ./exec/fcp.jar com.objectway.parallel.mapped.MappedSum [n]
+ * 
+ * @see com.objectway.parallel.ForkJoinFramework
+ */
+public class MappedSum {
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedSum.class.getName());
+
+	private static final long NUMBERS = 50_000_000L;
+
+	public static void main(String[] args) throws IOException {
+		long n = args.length > 0 ? Long.parseLong(args[0]) : NUMBERS;
+
+		Path file = Files.createTempFile("numbers", ".bin");
+		try {
+			long start = System.nanoTime();
+			MappedReductions.writeLongs(file, n, i -> i + 1);
+			logger.info("Written {} numbers ({} MB) in {} ms.", n, Files.size(file) / (1024 * 1024), 
+					(System.nanoTime() - start) / 1_000_000);
+
+			start = System.nanoTime();
+			long sum = MappedReductions.sumLongs(file);
+			logger.info("Sum: {} (expected {}) computed in {} ms.", sum, n * (n + 1) / 2, 
+					(System.nanoTime() - start) / 1_000_000);
+
+			start = System.nanoTime();
+			long max = MappedReductions.reduceLongs(file, Long.MIN_VALUE, Math::max);
+			logger.info("Max: {} computed in {} ms.", max, (System.nanoTime() - start) / 1_000_000);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.objectway.parallel.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Helpers shared by the tasks splitting text files in chunks.
+ * Only ASCII whitespaces are recognized in bytes: in UTF-8 they are never part of a multi-byte
+ * sequence, so a chunk starting or ending on a whitespace can always be decoded on its own.
+ */
+final class MappedText {
+
+	// How far from the middle of a range a whitespace is searched for.
+	static final int SPLIT_WINDOW = 64 * 1024;
+
+	private static final boolean[] WHITESPACE = new boolean[256];
+
+	static {
+		for (int c = 0; c < 128; c++) {
+			WHITESPACE[c] = Character.isWhitespace(c);
+		}
+	}
+
+	private MappedText() {
+	}
+
+	static boolean isWhitespace(byte b) {
+		return WHITESPACE[b & 0xFF];
+	}
+
+	/**
+	 * The position of the first whitespace at or after position (and before end),
+	 * or -1 if there's none in the next SPLIT_WINDOW bytes.
+	 */
+	static long nextWhitespace(FileChannel channel, long position, long end) {
+		long limit = Math.min(position + SPLIT_WINDOW, end);
+		ByteBuffer window = ByteBuffer.allocate((int) (limit - position));
+		try {
+			while (window.hasRemaining() && channel.read(window, position + window.position()) > 0) {
+				// Positional reads can return less bytes than requested.
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for (int i = 0; i < window.position(); i++) {
+			if (isWhitespace(window.get(i))) {
+				return position + i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.objectway.parallel.mapped;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Parallel word count of text files of many gigabytes. WordCount needs the whole text in a String
+ * and streams a boxed Character for every char: here the file is memory-mapped chunk by chunk and
+ * every chunk is scanned byte by byte, without any allocation per character.
+ * 
+ * The file is split in the middle (like ForkJoinFramework does with arrays), but the split point
+ * is moved forward to the next whitespace byte, so that chunks don't cut words in two.
+ * A word longer than 64 KB can still be cut: every chunk remembers whether it starts and ends
+ * inside a word, and when two adjacent chunks are merged a word crossing the boundary is counted once.
+ * 
+ * Words are separated by the ASCII characters for which Character.isWhitespace() is true.
+ * Any other byte (UTF-8 multi-byte sequences included) is part of a word.
+ * Usage: java -cp ./exec/fcp.jar com.objectway.parallel.mapped.MappedWordCount [file]
+ * 
+ * @see com.objectway.parallel.WordCount
+ */
+public class MappedWordCount {
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedWordCount.class.getName());
+
+	// The maximum size of a mapped chunk: 32 MB.
+	public static final long CHUNK_SIZE = 32L * 1024 * 1024;
+
+	public static void main(String[] args) throws IOException {
+		Path file;
+		boolean temporary = args.length == 0;
+		if (temporary) {
+			file = Files.createTempFile("words", ".txt");
+			writeSampleText(file, 5_000_000);
+		} else {
+			file = Paths.get(args[0]);
+		}
+
+		try {
+			logger.info("Counting words of {} ({} MB).", file, Files.size(file) / (1024 * 1024));
+
+			long start = System.nanoTime();
+			long sequential = sequentialCount(file);
+			logger.info("Sequential streaming count: {} words in {} ms.", sequential, (System.nanoTime() - start) / 1_000_000);
+
+			start = System.nanoTime();
+			long parallel = count(file);
+			logger.info("Parallel memory-mapped count: {} words in {} ms.", parallel, (System.nanoTime() - start) / 1_000_000);
+		} finally {
+			if (temporary) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	public static long count(Path file) throws IOException {
+		return count(file, CHUNK_SIZE);
+	}
+
+	/**
+	 * Counts the words of the file in parallel.
+	 * @param file - The text file.
+	 * @param chunkSize - The maximum size of a chunk mapped and scanned by a single task.
+	 */
+	public static long count(Path file, long chunkSize) throws IOException {
+		if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return new ChunkTask(channel, 0, channel.size(), chunkSize).invoke().words;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * The sequential baseline: the file is read through a buffered stream on a single thread.
+	 */
+	public static long sequentialCount(Path file) throws IOException {
+		long words = 0;
+		boolean lastSpace = true;
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				for (int i = 0; i < read; i++) {
+					if (MappedText.isWhitespace(buffer[i])) {
+						lastSpace = true;
+					} else if (lastSpace) {
+						words++;
+						lastSpace = false;
+					}
+				}
+			}
+		}
+		return words;
+	}
+
+	/*
+	 * The word count of a chunk, plus what's needed to merge it with its neighbours:
+	 * whether it starts and ends inside a word.
+	 */
+	private static final class Chunk {
+
+		private static final Chunk EMPTY = new Chunk(0, false, false, true);
+
+		private final long words;
+		private final boolean startsInWord;
+		private final boolean endsInWord;
+		private final boolean empty;
+
+		private Chunk(long words, boolean startsInWord, boolean endsInWord, boolean empty) {
+			this.words = words;
+			this.startsInWord = startsInWord;
+			this.endsInWord = endsInWord;
+			this.empty = empty;
+		}
+
+		// This chunk comes right before the other one.
+		private Chunk merge(Chunk other) {
+			if (empty) {
+				return other;
+			}
+			if (other.empty) {
+				return this;
+			}
+			long merged = words + other.words - (endsInWord && other.startsInWord ? 1 : 0);
+			return new Chunk(merged, startsInWord, other.endsInWord, false);
+		}
+
+	}
+
+	private static final class ChunkTask extends RecursiveTask<Chunk> {
+
+		private static final long serialVersionUID = 4502871915330127442L;
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final long chunkSize;
+
+		private ChunkTask(FileChannel channel, long start, long end, long chunkSize) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected Chunk compute() {
+			long length = end - start;
+			if (length <= chunkSize) {
+				return countChunk();
+			}
+
+			long middle = MappedText.nextWhitespace(channel, start + length / 2, end);
+			if (middle < 0) { // A very long word: split it anyway, merge() will count it once.
+				middle = start + length / 2;
+			}
+
+			ChunkTask leftTask = new ChunkTask(channel, start, middle, chunkSize);
+			leftTask.fork();
+
+			ChunkTask rightTask = new ChunkTask(channel, middle, end, chunkSize);
+			Chunk rightResult = rightTask.compute();
+			Chunk leftResult = leftTask.join();
+
+			return leftResult.merge(rightResult);
+		}
+
+		private Chunk countChunk() {
+			if (start == end) {
+				return Chunk.EMPTY;
+			}
+			MappedByteBuffer bytes;
+			try {
+				bytes = channel.map(MapMode.READ_ONLY, start, end - start);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot map chunk [" + start + ", " + end + ")", e);
+			}
+
+			int size = bytes.limit();
+			long words = 0;
+			boolean lastSpace = true;
+			for (int i = 0; i < size; i++) {
+				if (MappedText.isWhitespace(bytes.get(i))) {
+					lastSpace = true;
+				} else if (lastSpace) {
+					words++;
+					lastSpace = false;
+				}
+			}
+			boolean startsInWord = !MappedText.isWhitespace(bytes.get(0));
+			return new Chunk(words, startsInWord, !lastSpace, false);
+		}
+
+	}
+
+	// Writes a sample text file made of the given number of words.
+	private static void writeSampleText(Path file, int words) throws IOException {
+		String[] sentence = "A good day is always represented by a functional programming session!".split(" ");
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+			for (int i = 0; i < words; i++) {
+				out.write(sentence[i % sentence.length].getBytes(StandardCharsets.UTF_8));
+				out.write(i % 12 == 11 ? '\n' : ' ');
+			}
+		}
+	}
+
+}
@@ -0,0 +1,154 @@
+package com.objectway.parallel.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.parallel.WordFrequency;
+import com.objectway.parallel.WordFrequency.PerWorkerMaps;
+import com.objectway.parallel.WordFrequencyMap;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ * 
+ * Word frequencies of UTF-8 text files bigger than the heap. The file is split in chunks on whitespace
+ * bytes like in MappedWordCount; every chunk is mapped, decoded and its words are added to the
+ * WordFrequencyMap of the worker thread. Only the chunks being processed and the maps live in the heap.
+ * Usage: java -cp ./exec/fcp.jar com.objectway.parallel.mapped.MappedWordFrequency file [k]
+ * 
+ * @see com.objectway.parallel.WordFrequency
+ * @see com.objectway.parallel.mapped.MappedWordCount
+ */
+public class MappedWordFrequency {
+
+	private static final Logger logger = LoggerFactory.getLogger(MappedWordFrequency.class.getName());
+
+	// The maximum size of a chunk: 16 MB.
+	public static final long CHUNK_SIZE = 16L * 1024 * 1024;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			logger.error("Usage: MappedWordFrequency file [k]");
+			return;
+		}
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+		long start = System.nanoTime();
+		WordFrequencyMap frequencies = count(Paths.get(args[0]));
+		List<Map.Entry<String, Long>> top = frequencies.topK(k);
+		logger.info("{} distinct words, {} words in {} ms.", frequencies.size(), frequencies.total(), 
+				(System.nanoTime() - start) / 1_000_000);
+		logger.info("Top {} words: {}", k, top);
+	}
+
+	public static WordFrequencyMap count(Path file) throws IOException {
+		return count(file, CHUNK_SIZE);
+	}
+
+	public static WordFrequencyMap count(Path file, long chunkSize) throws IOException {
+		if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+		}
+		PerWorkerMaps maps = new PerWorkerMaps();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			new ChunkTask(channel, 0, channel.size(), chunkSize, maps).invoke();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return maps.merge();
+	}
+
+	private static final class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1871650092361740329L;
+
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final long chunkSize;
+		private final PerWorkerMaps maps;
+
+		private ChunkTask(FileChannel channel, long start, long end, long chunkSize, PerWorkerMaps maps) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.chunkSize = chunkSize;
+			this.maps = maps;
+		}
+
+		@Override
+		protected void compute() {
+			long length = end - start;
+			// Unlike word counting, a word can't be cut in two: the chunk is split on a whitespace.
+			long middle = length > chunkSize ? splitPoint() : -1;
+			if (middle <= start) {
+				if (length > Integer.MAX_VALUE) {
+					throw new IllegalStateException("No whitespace in chunk [" + start + ", " + end
+							+ "): a word longer than 2 GB can't be counted");
+				}
+				countChunk();
+				return;
+			}
+
+			ChunkTask leftTask = new ChunkTask(channel, start, middle, chunkSize, maps);
+			leftTask.fork();
+			new ChunkTask(channel, middle, end, chunkSize, maps).compute();
+			leftTask.join();
+		}
+
+		/**
+		 * The first whitespace after the middle of the chunk; if the second half has none, the first
+		 * whitespace of the first half; -1 if the chunk is a single word.
+		 */
+		private long splitPoint() {
+			long middle = start + (end - start) / 2;
+			long split = nextWhitespace(middle, end);
+			return split >= 0 ? split : nextWhitespace(start + 1, middle);
+		}
+
+		private long nextWhitespace(long from, long to) {
+			for (long position = from; position < to; position += MappedText.SPLIT_WINDOW) {
+				long whitespace = MappedText.nextWhitespace(channel, position, to);
+				if (whitespace >= 0) {
+					return whitespace;
+				}
+			}
+			return -1;
+		}
+
+		private void countChunk() {
+			if (start == end) {
+				return;
+			}
+			try {
+				MappedByteBuffer bytes = channel.map(MapMode.READ_ONLY, start, end - start);
+				CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+						.onMalformedInput(CodingErrorAction.REPLACE)
+						.onUnmappableCharacter(CodingErrorAction.REPLACE)
+						.decode(bytes);
+				WordFrequency.countRange(chars, 0, chars.length(), maps.get());
+			} catch (CharacterCodingException e) {
+				throw new IllegalStateException("Cannot decode chunk [" + start + ", " + end + ")", e);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot map chunk [" + start + ", " + end + ")", e);
+			}
+		}
+
+	}
+
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.objectway.collectors.TopKCollector;
 import com.objectway.model.Dish;
 import com.objectway.streams.exercises.helpers.MenuCreator;
 
@@ -34,6 +35,7 @@ import com.objectway.streams.exercises.helpers.MenuCreator;
  *   
  * What are the benefits you see compared to TraditionalProcessing.java?
  * @see com.objectway.streams.TraditionalProcessing
+ * @see com.objectway.collectors.TopKCollector
  */
 public class StreamIntro {
 	
@@ -51,6 +53,17 @@ public class StreamIntro {
 			.collect(toList());
 		
 		logger.info("Top 3 dishes with less calories: {}", topThree);
+		
+		// sorted().limit(3) sorts every dish to keep 3 of them: a bounded heap keeps only the best 3.
+		List<String> topThreeWithHeap = menu.parallelStream()
+			.filter(d -> d.getCalories() < 400)
+			.distinct()
+			.collect(TopKCollector.smallestByInt(3, Dish::getCalories))
+			.stream()
+			.map(Dish::getName)
+			.collect(toList());
+		
+		logger.info("Top 3 dishes with less calories, with a bounded heap: {}", topThreeWithHeap);
 	}
 			
 }
@@ -24,6 +24,9 @@ import com.objectway.streams.exercises.helpers.MenuCreator;
  * 
  * Try to describe the structure of the program. How is it built? What are its characteristics?
  * Enumerate the strong points of this code and / or its problems.
+ * (Hint: how many dishes are sorted to present only three of them? See TopKCollector.)
+ * 
+ * @see com.objectway.collectors.TopKCollector
  */
 public class TraditionalProcessing {
 	
@@ -0,0 +1,69 @@
+package com.objectway.async.shopfinder.virtualthreads;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.objectway.async.shopfinder.ShopFinderModelComparison;
+import com.objectway.async.shopfinder.customexecutor.SelfTuningExecutor;
+import com.objectway.async.shopfinder.model.Shop;
+
+/**
+ * @author Renato Perini <renato.perini@objectway.com>
+ *
+ * Thread-per-request with virtual threads: every Shop.getPrice() runs on its own virtual thread and
+ * keeps the simple blocking code. While Thread.sleep() (or blocking I/O) waits, the virtual thread
+ * is unmounted and its carrier thread runs other virtual threads, so 10,000 pending quotes need
+ * 10,000 cheap virtual threads but only a few platform threads.
+ *
+ * Needs JDK 21: this source folder is compiled only by the virtual-threads profile.
+ * Usage: java -cp ./exec/fcp.jar com.objectway.async.shopfinder.virtualthreads.ShopFinderVirtualThreads [shops]
+ *
+ * @see com.objectway.async.shopfinder.ShopFinderModelComparison
+ */
+public class ShopFinderVirtualThreads {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShopFinderVirtualThreads.class.getName());
+
+	public static void main(String[] args) {
+		int shops = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		List<Shop> shopList = IntStream.range(0, shops)
+				.mapToObj(i -> new Shop("Shop " + i))
+				.collect(Collectors.toList());
+		String product = "AMD Ryzen Threadripper 3990WX";
+
+		measure("Virtual threads", () -> findPricesVirtualThreads(shopList, product));
+
+		// A custom executor allowed to grow up to a platform thread per shop.
+		SelfTuningExecutor executor = new SelfTuningExecutor(1.0, 1, shops);
+		measure("Custom executor",
+				() -> ShopFinderModelComparison.findPricesAsyncWithCustomExecutor(shopList, product, executor));
+		executor.shutdown();
+	}
+
+	public static List<String> findPricesVirtualThreads(List<Shop> shops, String product) {
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			return ShopFinderModelComparison.findPricesAsyncWithCustomExecutor(shops, product, executor);
+		}
+	}
+
+	private static void measure(String model, Supplier<List<String>> search) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
+		long start = System.currentTimeMillis();
+		List<String> prices = search.get();
+		long duration = System.currentTimeMillis() - start;
+		logger.info("{}: {} prices in {} secs, {} quotes per second, peak platform threads: {}.", model, prices.size(),
+				duration / 1000f, prices.size() * 1000 / Math.max(1, duration), threads.getPeakThreadCount());
+	}
+
+}